@@ -0,0 +1,80 @@
+package edu.uwm.cs351.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.uwm.cs351.DoublePlanetIndex;
+import edu.uwm.cs351.IntPlanetIndex;
+import edu.uwm.cs351.PlanetIndex;
+
+/**
+ * Copying an index by name into a new index by another key,
+ * as {@link edu.uwm.cs351.PlanetDataReader} does for each field.
+ * A boxed index is built all at once, while the primitive indices
+ * add each planet in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AddAllBenchmark {
+
+	@Param({"10000", "100000"})
+	int size;
+
+	private PlanetIndex<String> names;
+
+	@Setup
+	public void setUp() {
+		names = new PlanetIndex<>((p) -> (String)p.getField(BenchmarkData.NAME_INDEX), true);
+		names.addAll(BenchmarkData.planets(size, true));
+	}
+
+	@Benchmark
+	public PlanetIndex<String> byName() {
+		PlanetIndex<String> index = new PlanetIndex<>((p) -> (String)p.getField(BenchmarkData.NAME_INDEX), true);
+		index.addAll(names);
+		return index;
+	}
+
+	@Benchmark
+	public PlanetIndex<Double> byMass() {
+		PlanetIndex<Double> index = new PlanetIndex<>((p) -> (Double)p.getField(BenchmarkData.MASS_INDEX), true);
+		index.addAll(names);
+		return index;
+	}
+
+	@Benchmark
+	public PlanetIndex<Integer> byInteger() {
+		PlanetIndex<Integer> index = new PlanetIndex<>((p) -> (int)p.getDouble(BenchmarkData.MASS_INDEX) % 1000, true);
+		index.addAll(names);
+		return index;
+	}
+
+	@Benchmark
+	public DoublePlanetIndex byPrimitiveDouble() {
+		DoublePlanetIndex index = new DoublePlanetIndex((p) -> p.getDouble(BenchmarkData.MASS_INDEX));
+		index.addAll(names);
+		return index;
+	}
+
+	@Benchmark
+	public IntPlanetIndex byPrimitiveInt() {
+		IntPlanetIndex index = new IntPlanetIndex((p) -> (int)p.getDouble(BenchmarkData.MASS_INDEX) % 1000);
+		index.addAll(names);
+		return index;
+	}
+}
@@ -0,0 +1,67 @@
+package edu.uwm.cs351.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+
+/**
+ * Filling an empty index by adding planets one at a time,
+ * in random order or already sorted by key.
+ * Sorted insertion is the worst case for an unbalanced tree,
+ * and is what happens when indexing the catalogue by name.
+ * Each operation adds all the planets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AddBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	int size;
+
+	@Param({"true", "false"})
+	boolean sorted;
+
+	@Param({"true", "false"})
+	boolean balanced;
+
+	private List<Planet> planets;
+
+	@Setup
+	public void setUp() {
+		planets = BenchmarkData.planets(size, !sorted);
+	}
+
+	@Benchmark
+	public PlanetIndex<Double> add() {
+		PlanetIndex<Double> index = new PlanetIndex<>((p) -> (Double)p.getField(BenchmarkData.MASS_INDEX), balanced);
+		for (Planet p : planets) {
+			index.add(p);
+		}
+		return index;
+	}
+
+	@Benchmark
+	public PlanetIndex<Double> addAll() {
+		PlanetIndex<Double> index = new PlanetIndex<>((p) -> (Double)p.getField(BenchmarkData.MASS_INDEX), balanced);
+		index.addAll(planets);
+		return index;
+	}
+}
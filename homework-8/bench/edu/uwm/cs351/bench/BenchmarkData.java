@@ -0,0 +1,54 @@
+package edu.uwm.cs351.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import edu.uwm.cs351.Planet;
+
+/**
+ * Data shared by the benchmarks, generated from a fixed seed so that
+ * every run measures the same work.
+ */
+final class BenchmarkData {
+
+	static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+	static final int FLAG_INDEX = Planet.getFieldIndex("binary_flag");
+	static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	private BenchmarkData() { }
+
+	/**
+	 * Generate planets with distinct masses 0, 1, ..., n-1.
+	 * @param n number of planets
+	 * @param shuffled whether to put them in random order rather than by mass
+	 * @return list of planets
+	 */
+	static List<Planet> planets(int n, boolean shuffled) {
+		List<Planet> result = new ArrayList<>(n);
+		for (int i=0; i < n; ++i) {
+			result.add(new Planet(String.format("Planet %07d", i), i));
+		}
+		if (shuffled) Collections.shuffle(result, new Random(351));
+		return result;
+	}
+
+	/**
+	 * Generate a catalogue in CSV, sorted by name as the real one is,
+	 * with all the fields of a typical planet.
+	 * @param n number of planets
+	 * @return text of the catalogue
+	 */
+	static String catalogue(int n) {
+		StringBuilder sb = new StringBuilder("# name,binary_flag,mass,...\n");
+		for (int i=0; i < n; ++i) {
+			sb.append(String.format("Planet %07d", i)).append(',').append(i % 4).append(',');
+			if (i % 10 != 0) sb.append(i % 1000 * 0.25);
+			sb.append(",1.2,2.47,0.036,0,,,,83.9,1339,,");
+			sb.append(i % 3 == 0 ? "transit" : "RV");
+			sb.append(",2006,16/03/03,19 07 14,+49 18 59,450,0.98,0.95,-0.15,5750,4.5,\"Confirmed planets, Kepler\"\n");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,73 @@
+package edu.uwm.cs351.bench;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetTable;
+
+/**
+ * {@link Planet#compareTo(Planet)}, which breaks ties between planets
+ * with the same key in every index.  Planets that differ only in a
+ * late field are the most expensive to compare, since every field
+ * before it is compared first.  The planets are either separate
+ * objects or rows of a {@link PlanetTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompareBenchmark {
+
+	@Param({"true", "false"})
+	boolean table;
+
+	private Planet first, second, copy;
+
+	@Setup
+	public void setUp() {
+		String csv = BenchmarkData.catalogue(2);
+		// a copy of the second planet with only its last field different
+		String last = csv.substring(csv.lastIndexOf('\n', csv.length() - 2) + 1);
+		csv += last.replace("Kepler", "Kepler-2");
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(csv), table ? new PlanetTable() : null);
+		List<Planet> planets = new ArrayList<>();
+		reader.getStringPlanetIndex(BenchmarkData.NAME_INDEX).doAll((p) -> planets.add(p), null, null, Traversal.IN_ORDER);
+		first = planets.get(0);
+		second = planets.get(1);
+		copy = planets.get(2);
+	}
+
+	@Benchmark
+	public int differentName() {
+		return first.compareTo(second);
+	}
+
+	@Benchmark
+	public int differentLastField() {
+		return second.compareTo(copy);
+	}
+
+	@Benchmark
+	public int same() {
+		return second.compareTo(second);
+	}
+}
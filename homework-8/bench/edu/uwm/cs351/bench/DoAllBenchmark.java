@@ -0,0 +1,61 @@
+package edu.uwm.cs351.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+/**
+ * Range scans with {@link PlanetIndex#doAll}, for each traversal,
+ * over ranges holding a given fraction of the planets.
+ * Each operation scans one range, starting at a random key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DoAllBenchmark {
+
+	@Param({"100000"})
+	int size;
+
+	@Param({"0.0001", "0.01", "1.0"})
+	double selectivity;
+
+	@Param({"PRE_ORDER", "IN_ORDER", "POST_ORDER", "REVERSE_ORDER"})
+	Traversal traversal;
+
+	private PlanetIndex<Double> index;
+	private Random random;
+	private double width;
+
+	@Setup
+	public void setUp() {
+		index = new PlanetIndex<>((p) -> (Double)p.getField(BenchmarkData.MASS_INDEX), true);
+		index.addAll(BenchmarkData.planets(size, true));
+		random = new Random(351);
+		width = selectivity * size;
+	}
+
+	@Benchmark
+	public void doAll(Blackhole bh) {
+		double lo = random.nextInt((int)(size - width) + 1);
+		index.doAll(bh::consume, lo, lo + width - 1, traversal);
+	}
+}
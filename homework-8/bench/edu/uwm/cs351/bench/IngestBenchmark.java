@@ -0,0 +1,97 @@
+package edu.uwm.cs351.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetTable;
+
+/**
+ * Reading the catalogue: parsing CSV text from a reader or
+ * a mapped file (optionally in parallel, optionally into a table),
+ * and opening a binary snapshot of the same catalogue.
+ * Each operation reads the whole catalogue and builds the index by name.
+ * The progress messages printed while reading are discarded, since
+ * printing them would take longer than the parsing being measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class IngestBenchmark {
+
+	@Param({"5000", "100000"})
+	int size;
+
+	private String csv;
+	private Path file, snapshot;
+	private ForkJoinPool pool;
+	private PrintStream out;
+
+	@Setup
+	public void setUp() throws IOException {
+		out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		csv = BenchmarkData.catalogue(size);
+		file = Files.createTempFile("planets", ".csv");
+		Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+		snapshot = Files.createTempFile("planets", ".snapshot");
+		new PlanetDataReader(file, null).writeSnapshot(snapshot);
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.setOut(out);
+		pool.shutdown();
+		Files.delete(file);
+		Files.delete(snapshot);
+	}
+
+	@Benchmark
+	public PlanetDataReader reader() {
+		return new PlanetDataReader(new StringReader(csv));
+	}
+
+	@Benchmark
+	public PlanetDataReader file() {
+		return new PlanetDataReader(file, null);
+	}
+
+	@Benchmark
+	public PlanetDataReader fileToTable() {
+		return new PlanetDataReader(file, new PlanetTable());
+	}
+
+	@Benchmark
+	public PlanetDataReader fileInParallel() {
+		return new PlanetDataReader(file, new PlanetTable(), pool);
+	}
+
+	@Benchmark
+	public PlanetDataReader snapshot() throws IOException {
+		return PlanetDataReader.readSnapshot(snapshot);
+	}
+}
@@ -0,0 +1,19 @@
+/**
+ * JMH benchmarks of planet indices and of reading the catalogue.
+ * Unlike the wall-clock loops of <code>TestEfficiency</code>, JMH warms up the
+ * JIT, runs each benchmark in fresh JVMs, and reports the error of its
+ * measurements, so that changes in performance can be seen.
+ * <p>
+ * These sources are kept apart from <code>src</code> since they need
+ * JMH (<code>org.openjdk.jmh:jmh-core</code>) on the class path and its annotation
+ * processor (<code>jmh-generator-annprocess</code>) when compiling, for example:
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar:bin -d bench-bin $(find bench -name '*.java')
+ * java -cp jmh-core.jar:jopt-simple.jar:commons-math3.jar:bin:bench-bin org.openjdk.jmh.Main -prof gc
+ * </pre>
+ * The <code>gc</code> profiler adds the allocation rate (bytes per operation)
+ * to the throughput (operations per second) of each benchmark.
+ * A single benchmark can be chosen by giving a pattern such as <code>DoAll</code>,
+ * and parameters can be changed with <code>-p</code>, for example <code>-p size=1000000</code>.
+ */
+package edu.uwm.cs351.bench;
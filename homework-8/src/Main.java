@@ -1,8 +1,14 @@
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import edu.uwm.cs351.DoublePlanetIndex;
+import edu.uwm.cs351.IntPlanetIndex;
 import edu.uwm.cs351.Planet;
 import edu.uwm.cs351.PlanetDataReader;
 import edu.uwm.cs351.PlanetIndex;
@@ -16,12 +22,33 @@ public class Main {
 	
 	private static final String planetURL = "https://raw.githubusercontent.com/OpenExoplanetCatalogue/oec_tables/master/comma_separated/open_exoplanet_catalogue.txt";
 
+	/**
+	 * Run the demo.  If the path of a snapshot file is given,
+	 * the catalogue and its indices are opened from the snapshot if it
+	 * exists, and otherwise are saved in it after being downloaded,
+	 * so that later runs need not download the catalogue again.
+	 * (Delete the snapshot to get the latest catalogue.)
+	 * @param args optional path of snapshot file
+	 * @throws IOException if the catalogue cannot be downloaded or the snapshot used
+	 */
 	public static void main(String[] args) throws IOException {
-		Reader r = new InputStreamReader(new URL(planetURL).openStream());
-		PlanetDataReader reader = new PlanetDataReader(r);
-		PlanetIndex<Integer> binary_flag = (PlanetIndex<Integer>) reader.createIntegerPlanetIndex(1);
-		PlanetIndex<Double> orbital_radius = (PlanetIndex<Double>) reader.createDoublePlanetIndex(5);
-		PlanetIndex<Double> mass = (PlanetIndex<Double>) reader.createDoublePlanetIndex(2);
+		Path snapshot = args.length > 0 ? Paths.get(args[0]) : null;
+		boolean download = snapshot == null || !Files.exists(snapshot);
+		PlanetDataReader reader;
+		if (download) {
+			// read all the text first, so that a failed download is not taken for a short catalogue
+			String csv;
+			try (InputStream in = new URL(planetURL).openStream()) {
+				csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			}
+			reader = new PlanetDataReader(new StringReader(csv));
+		} else {
+			reader = PlanetDataReader.readSnapshot(snapshot);
+		}
+		IntPlanetIndex binary_flag = reader.getIntIndex(1);
+		PlanetIndex<Double> orbital_radius = reader.getDoublePlanetIndex(5);
+		DoublePlanetIndex mass = reader.getDoubleIndex(2);
+		if (download && snapshot != null) reader.writeSnapshot(snapshot);
 		PlanetIndex<Double> temperature_and_radius;
 
 		System.out.println();
@@ -57,11 +84,13 @@ public class Main {
 		System.out.println("https://www.astro.umd.edu/~miller/teaching/astr380f09/lecture14.pdf");
 
 		System.out.println();
-		System.out.println("Finally, a list of some of the biggest exoplanets (keep in mind these are jupiter masses!).");
+		System.out.println("Finally, a list of the ten biggest exoplanets (keep in mind these are jupiter masses!).");
 		System.out.println("And more are being found every week");
 		System.out.println("https://exoplanetarchive.ipac.caltech.edu/docs/exonews_archive.html");
 		System.out.println("-----------------------------------------------------------------------------------");
-		printAll(mass, 20.0 , null ,Traversal.IN_ORDER);
+		mass.doAll((p) -> {
+			System.out.println(p.dataString());
+		}, 20.0, Double.POSITIVE_INFINITY, true, 0, 10);
 	}
 
 	static <K extends Comparable<K>> 
@@ -71,4 +100,16 @@ public class Main {
 		}, lo, hi, t);
 	}
 
+	static void printAll(DoublePlanetIndex pi, double lo, double hi, Traversal t) {
+		pi.doAll((p) -> {
+			System.out.println(p.dataString());
+		}, lo, hi, t);
+	}
+
+	static void printAll(IntPlanetIndex pi, int lo, int hi, Traversal t) {
+		pi.doAll((p) -> {
+			System.out.println(p.dataString());
+		}, lo, hi, t);
+	}
+
 }
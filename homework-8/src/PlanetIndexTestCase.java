@@ -0,0 +1,29 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import junit.framework.TestCase;
+
+/**
+ * Fixtures shared by the tests of indices of planets by mass.
+ */
+public abstract class PlanetIndexTestCase extends TestCase {
+
+	protected static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	protected static PlanetIndex<Double> makeIndex(boolean balanced) {
+		return new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX), balanced);
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	protected static List<Planet> inOrder(PlanetIndex<?> pi) {
+		List<Planet> result = new ArrayList<>();
+		pi.doAll((p) -> result.add(p), null, null, Traversal.IN_ORDER);
+		return result;
+	}
+}
@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import junit.framework.TestCase;
+
+public class TestBalancedPlanetIndex extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+	private static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+
+	private PlanetIndex<Double> pi;
+	private PlanetIndex<String> pis;
+
+	protected static PlanetIndex<Double> makeMassIndex() {
+		return new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX), true);
+	}
+
+	protected static PlanetIndex<String> makeNameIndex() {
+		return new PlanetIndex<>((p) -> (String)p.getField(NAME_INDEX), true);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		pi = makeMassIndex();
+		pis = makeNameIndex();
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	<K extends Comparable<K>>
+	void testAll(PlanetIndex<K> pi, K lo, K hi, Traversal t, Planet... expected) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), lo, hi, t);
+		assertEquals(expected.length, results.size());
+		for (int i=0; i < expected.length; ++i) {
+			assertSame(expected[i], results.get(i));
+		}
+	}
+
+	public void test0() {
+		assertTrue(pi.isBalanced());
+		assertFalse(new PlanetIndex<Double>((p) -> (Double)p.getField(MASS_INDEX)).isBalanced());
+	}
+
+	public void test1() {
+		Planet p1 = n(1), p2 = n(2), p3 = n(3);
+		pi.add(p1);
+		pi.add(p2);
+		pi.add(p3);
+		// rotated so that p2 is at the root
+		testAll(pi, null, null, Traversal.PRE_ORDER, p2, p1, p3);
+		testAll(pi, null, null, Traversal.IN_ORDER, p1, p2, p3);
+	}
+
+	public void test2() {
+		Planet p1 = n(1), p2 = n(2), p3 = n(3);
+		pi.add(p3);
+		pi.add(p1);
+		pi.add(p2);
+		// double rotation
+		testAll(pi, null, null, Traversal.PRE_ORDER, p2, p1, p3);
+		testAll(pi, null, null, Traversal.POST_ORDER, p1, p3, p2);
+	}
+
+	public void test3() {
+		Planet a = new Planet("TestA", 4);
+		Planet b = new Planet("TestB", 4);
+		Planet c = new Planet("TestC", 4);
+		Planet d = new Planet("TestA", 4);
+		assertTrue(pi.add(c));
+		assertTrue(pi.add(b));
+		assertTrue(pi.add(a));
+		assertFalse(pi.add(d));
+		assertEquals(3, pi.size());
+		testAll(pi, 4.0, 4.0, Traversal.IN_ORDER, a, b, c);
+	}
+
+	public void test4() {
+		final int N = 1 << 12;
+		Planet[] planets = new Planet[N];
+		for (int i=0; i < N; ++i) {
+			planets[i] = n(i);
+			assertTrue(pi.add(planets[i]));
+		}
+		assertEquals(N, pi.size());
+		assertTrue(pi.wellFormed());
+		testAll(pi, 100.0, 103.5, Traversal.IN_ORDER, planets[100], planets[101], planets[102], planets[103]);
+	}
+
+	public void test5() {
+		for (int i=0; i < 1000; ++i) {
+			pi.add(n(i));
+		}
+		pis.addAll(pi);
+		assertEquals(1000, pis.size());
+		assertTrue(pis.wellFormed());
+		List<Planet> results = new ArrayList<>();
+		pis.doAll((p) -> results.add(p), "Planet 998", "Planet 999", Traversal.IN_ORDER);
+		assertEquals(2, results.size());
+	}
+
+	public void test6() {
+		PlanetIndex<Double> unbalanced = new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+		Planet[] planets = new Planet[7];
+		for (int i=0; i < planets.length; ++i) {
+			planets[i] = n(i);
+		}
+		// built perfectly balanced, even though sorted and not a balanced index
+		unbalanced.addAll(Arrays.asList(planets));
+		assertEquals(7, unbalanced.size());
+		testAll(unbalanced, null, null, Traversal.PRE_ORDER, planets[3], planets[1], planets[0], planets[2], planets[5], planets[4], planets[6]);
+		// but later additions are not balanced
+		Planet p7 = n(7), p8 = n(8);
+		unbalanced.add(p7);
+		unbalanced.add(p8);
+		testAll(unbalanced, null, null, Traversal.POST_ORDER, planets[0], planets[2], planets[1], planets[4], p8, p7, planets[6], planets[5], planets[3]);
+	}
+
+	public void test7() {
+		Planet a = new Planet("TestA", 4);
+		Planet b = new Planet("TestB", 4);
+		Planet c = new Planet("TestC", 1);
+		Planet missing = new Planet(new Object[Planet.numFields()]);
+		pi.addAll(Arrays.asList(b, a, missing, new Planet("TestB", 4), c, a));
+		assertEquals(3, pi.size());
+		testAll(pi, null, null, Traversal.IN_ORDER, c, a, b);
+		testAll(pi, null, null, Traversal.PRE_ORDER, a, c, b);
+		try {
+			makeMassIndex().addAll(Arrays.asList(a, null));
+			fail("should not be able to add null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test8() {
+		for (int i=0; i < 1000; ++i) {
+			pi.add(n(i*7 % 1000));
+		}
+		PlanetIndex<Double> copy = makeMassIndex();
+		copy.addAll(pi);
+		assertEquals(1000, copy.size());
+		List<Planet> l1 = new ArrayList<>(), l2 = new ArrayList<>();
+		pi.doAll((p) -> l1.add(p), null, null, Traversal.IN_ORDER);
+		copy.doAll((p) -> l2.add(p), null, null, Traversal.IN_ORDER);
+		assertEquals(l1, l2);
+		copy.addAll(pi);
+		assertEquals(1000, copy.size());
+	}
+
+	public void test9() {
+		PlanetIndex<Double> unbalanced = new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+		for (PlanetIndex<Double> index : Arrays.asList(pi, unbalanced)) {
+			List<Planet> planets = new ArrayList<>();
+			for (int i=0; i < 100; ++i) {
+				Planet p = new Planet("Planet " + i % 7, i % 13);
+				if (index.add(p)) planets.add(p);
+			}
+			for (double lo = -1; lo < 14; lo += 2.5) {
+				List<Planet> forward = new ArrayList<>(), backward = new ArrayList<>();
+				index.doAll((p) -> forward.add(p), lo, lo + 4, Traversal.IN_ORDER);
+				index.doAll((p) -> backward.add(p), lo, lo + 4, Traversal.REVERSE_ORDER);
+				Collections.reverse(backward);
+				assertEquals(forward, backward);
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uwm.cs351.ConcurrentPlanetIndex;
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import junit.framework.TestCase;
+
+public class TestConcurrentPlanetIndex extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	private ConcurrentPlanetIndex<Double> pi;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		pi = new ConcurrentPlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	private List<Planet> all(Double lo, Double hi, Traversal t) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), lo, hi, t);
+		return results;
+	}
+
+	public void test0() {
+		assertEquals(0, pi.size());
+		assertTrue(all(null, null, Traversal.IN_ORDER).isEmpty());
+		assertFalse(pi.add(new Planet(new Object[Planet.numFields()])));
+		try {
+			pi.add(null);
+			fail("should not be able to add null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		Planet p1 = n(1), p2 = n(2), p3 = n(3);
+		assertTrue(pi.add(p1));
+		assertTrue(pi.add(p2));
+		assertTrue(pi.add(p3));
+		assertFalse(pi.add(new Planet("Planet 2", 2)));
+		assertEquals(3, pi.size());
+		// balanced, just like a balanced PlanetIndex
+		assertEquals(Arrays.asList(p2, p1, p3), all(null, null, Traversal.PRE_ORDER));
+		assertEquals(Arrays.asList(p1, p3, p2), all(null, null, Traversal.POST_ORDER));
+		assertEquals(Arrays.asList(p2, p3), all(1.5, null, Traversal.IN_ORDER));
+	}
+
+	public void test2() {
+		for (int i=0; i < 100; i += 2) pi.add(n(i));
+		// adding during a traversal does not affect the traversal
+		List<Planet> seen = new ArrayList<>();
+		pi.doAll((p) -> {
+			seen.add(p);
+			pi.add(n((int)p.getDouble(MASS_INDEX) + 1));
+		}, null, null, Traversal.IN_ORDER);
+		assertEquals(50, seen.size());
+		assertEquals(100, pi.size());
+		List<Planet> after = all(null, null, Traversal.IN_ORDER);
+		for (int i=0; i < 100; ++i) {
+			assertEquals((double)i, after.get(i).getField(MASS_INDEX));
+		}
+	}
+
+	public void test3() {
+		Planet[] planets = new Planet[7];
+		for (int i=0; i < planets.length; ++i) planets[i] = n(i);
+		pi.addAll(Arrays.asList(planets[6], planets[2], planets[4], planets[0], planets[1], planets[5], planets[3], planets[3]));
+		assertEquals(7, pi.size());
+		assertEquals(Arrays.asList(planets[3], planets[1], planets[0], planets[2], planets[5], planets[4], planets[6]), all(null, null, Traversal.PRE_ORDER));
+		pi.addAll(Arrays.asList(n(7), n(8), n(3)));
+		assertEquals(9, pi.size());
+	}
+
+	public void test4() throws InterruptedException {
+		final int N = 1000;
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			for (int i=0; i < N; ++i) pi.add(n(i * 7 % N));
+		});
+		Thread[] readers = new Thread[3];
+		for (int j=0; j < readers.length; ++j) {
+			readers[j] = new Thread(() -> {
+				try {
+					int last = 0;
+					while (last < N) {
+						List<Planet> ps = all(null, null, Traversal.IN_ORDER);
+						for (int i=1; i < ps.size(); ++i) {
+							assertTrue((Double)ps.get(i-1).getField(MASS_INDEX) < (Double)ps.get(i).getField(MASS_INDEX));
+						}
+						// a reader never sees fewer planets than before
+						assertTrue(ps.size() >= last);
+						last = ps.size();
+					}
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			});
+		}
+		for (Thread t : readers) t.start();
+		writer.start();
+		writer.join();
+		for (Thread t : readers) t.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+		assertEquals(N, pi.size());
+	}
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+public class TestOrderStatistics extends PlanetIndexTestCase {
+
+	private static List<Planet> inOrder(PlanetIndex<Double> pi, Double lo, Double hi) {
+		List<Planet> result = new ArrayList<>();
+		pi.doAll((p) -> result.add(p), lo, hi, Traversal.IN_ORDER);
+		return result;
+	}
+
+	/**
+	 * Check rank, select and countInRange against traversals.
+	 */
+	private static void check(PlanetIndex<Double> pi, Random r) {
+		List<Planet> all = inOrder(pi, null, null);
+		for (int i=0; i < all.size(); ++i) {
+			assertSame(all.get(i), pi.select(i));
+		}
+		for (int i=0; i < 100; ++i) {
+			double lo = r.nextInt(60) / 2.0, hi = r.nextInt(60) / 2.0;
+			assertEquals(inOrder(pi, lo, hi).size(), pi.countInRange(lo, hi));
+			assertEquals(inOrder(pi, null, hi).size(), pi.countInRange(null, hi));
+			assertEquals(inOrder(pi, lo, null).size(), pi.countInRange(lo, null));
+			int rank = pi.rank(lo);
+			assertEquals(all.size() - inOrder(pi, lo, null).size(), rank);
+			if (rank < all.size()) assertTrue(pi.select(rank).getDouble(MASS_INDEX) >= lo);
+		}
+	}
+
+	public void test0() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		assertEquals(0, pi.countInRange(null, null));
+		assertEquals(0, pi.rank(1.0));
+		try {
+			pi.select(0);
+			fail("no planet 0");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		for (int i=0; i < 10; ++i) pi.add(new Planet("Planet " + i, i));
+		assertEquals(10, pi.countInRange(null, null));
+		assertEquals(3, pi.countInRange(2.0, 4.0));
+		assertEquals(2, pi.countInRange(2.5, 4.5));
+		assertEquals(0, pi.countInRange(5.0, 4.0));
+		assertEquals(4, pi.rank(4.0));
+		assertEquals(5, pi.rank(4.5));
+		assertEquals(10, pi.rank(100.0));
+		assertEquals(7.0, pi.select(7).getDouble(MASS_INDEX));
+		try {
+			pi.select(10);
+			fail("no planet 10");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void test2() {
+		// many planets with the same keys, in balanced and unbalanced indices
+		Random r = new Random(16);
+		for (boolean balanced : new boolean[] { true, false }) {
+			PlanetIndex<Double> pi = makeIndex(balanced);
+			for (int i=0; i < 500; ++i) {
+				pi.add(new Planet("Planet " + r.nextInt(50), r.nextInt(30)));
+			}
+			check(pi, r);
+		}
+	}
+
+	public void test3() {
+		Random r = new Random(3);
+		List<Planet> planets = new ArrayList<>();
+		for (int i=0; i < 500; ++i) {
+			planets.add(new Planet("Planet " + r.nextInt(50), r.nextInt(30)));
+		}
+		PlanetIndex<Double> pi = makeIndex(false);
+		pi.addAll(planets); // built
+		check(pi, r);
+		for (int i=0; i < 100; ++i) {
+			pi.add(new Planet("Other " + i, r.nextInt(30)));
+		}
+		check(pi, r);
+	}
+
+	private static List<Planet> page(PlanetIndex<Double> pi, Double lo, Double hi, boolean descending, int offset, int limit) {
+		List<Planet> result = new ArrayList<>();
+		pi.doAll((p) -> result.add(p), lo, hi, descending, offset, limit);
+		return result;
+	}
+
+	public void test4() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		for (int i=0; i < 10; ++i) pi.add(new Planet("Planet " + i, i));
+		List<Planet> all = inOrder(pi, null, null);
+		assertEquals(all.subList(0, 3), page(pi, null, null, false, 0, 3));
+		assertEquals(all.subList(2, 5), page(pi, 2.0, null, false, 0, 3));
+		assertEquals(all.subList(4, 6), page(pi, 2.0, 5.5, false, 2, 100));
+		assertEquals(Arrays.asList(all.get(9), all.get(8)), page(pi, null, null, true, 0, 2));
+		assertEquals(Arrays.asList(all.get(4), all.get(3), all.get(2)), page(pi, 2.0, 5.0, true, 1, 100));
+		assertTrue(page(pi, null, null, false, 10, 1).isEmpty());
+		assertTrue(page(pi, null, null, true, 0, 0).isEmpty());
+		assertTrue(page(pi, 5.0, 4.0, true, 0, 10).isEmpty());
+		assertEquals(all, page(pi, null, null, false, 0, Integer.MAX_VALUE));
+		try {
+			pi.doAll((p) -> {}, null, null, false, -1, 1);
+			fail("negative offset");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void test5() {
+		Random r = new Random(17);
+		PlanetIndex<Double> pi = makeIndex(false);
+		for (int i=0; i < 300; ++i) {
+			pi.add(new Planet("Planet " + r.nextInt(50), r.nextInt(30)));
+		}
+		for (int i=0; i < 100; ++i) {
+			double lo = r.nextInt(60) / 2.0, hi = r.nextInt(60) / 2.0;
+			int offset = r.nextInt(20), limit = r.nextInt(20);
+			List<Planet> range = inOrder(pi, lo, hi);
+			List<Planet> expected = range.subList(Math.min(offset, range.size()), Math.min(offset + limit, range.size()));
+			assertEquals(expected, page(pi, lo, hi, false, offset, limit));
+			List<Planet> reversed = new ArrayList<>(range);
+			Collections.reverse(reversed);
+			expected = reversed.subList(Math.min(offset, range.size()), Math.min(offset + limit, range.size()));
+			assertEquals(expected, page(pi, lo, hi, true, offset, limit));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+public class TestParallelDoAll extends PlanetIndexTestCase {
+
+	private static PlanetIndex<Double> makeIndex(boolean balanced, int n) {
+		PlanetIndex<Double> pi = makeIndex(balanced);
+		List<Planet> planets = new ArrayList<>();
+		for (int i=0; i < n; ++i) planets.add(n(i));
+		pi.addAll(planets);
+		return pi;
+	}
+
+	private static Set<Planet> parallel(PlanetIndex<Double> pi, Double lo, Double hi) {
+		Set<Planet> result = ConcurrentHashMap.newKeySet();
+		pi.parallelDoAll((p) -> assertTrue(result.add(p)), lo, hi);
+		return result;
+	}
+
+	private static Set<Planet> sequential(PlanetIndex<Double> pi, Double lo, Double hi) {
+		Set<Planet> result = new HashSet<>();
+		pi.doAll((p) -> result.add(p), lo, hi, Traversal.IN_ORDER);
+		return result;
+	}
+
+	public void test0() {
+		PlanetIndex<Double> pi = makeIndex(true, 0);
+		assertTrue(parallel(pi, null, null).isEmpty());
+		try {
+			pi.parallelDoAll(null, null, null);
+			fail("function must not be null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		PlanetIndex<Double> pi = makeIndex(true, 1000);
+		assertEquals(sequential(pi, null, null), parallel(pi, null, null));
+		assertEquals(sequential(pi, 10.5, 100.0), parallel(pi, 10.5, 100.0));
+	}
+
+	public void test2() {
+		PlanetIndex<Double> pi = makeIndex(true, 100_000);
+		assertEquals(sequential(pi, null, null), parallel(pi, null, null));
+		assertEquals(sequential(pi, 20_000.0, null), parallel(pi, 20_000.0, null));
+		assertEquals(sequential(pi, 1234.5, 98_765.0), parallel(pi, 1234.5, 98_765.0));
+		LongAdder count = new LongAdder();
+		DoubleAdder total = new DoubleAdder();
+		pi.parallelDoAll((p) -> {
+			count.increment();
+			total.add(p.getDouble(MASS_INDEX));
+		}, 50_000.0, null);
+		assertEquals(50_000, count.sum());
+		assertEquals(50_000.0 * (50_000 + 99_999) / 2, total.sum());
+	}
+
+	public void test3() {
+		// degenerate tree
+		PlanetIndex<Double> pi = makeIndex(false, 0);
+		for (int i=0; i < 5000; ++i) pi.add(n(i));
+		assertEquals(sequential(pi, 100.0, 4900.0), parallel(pi, 100.0, 4900.0));
+	}
+
+	public void test4() {
+		PlanetIndex<Double> pi = makeIndex(true, 100_000);
+		try {
+			pi.parallelDoAll((p) -> {
+				if (p.getDouble(MASS_INDEX) == 77_777.0) throw new IllegalStateException("found it");
+			}, null, null);
+			fail("exception should be passed on");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	public void test5() {
+		// unbalanced tree built from sorted planets: only a right spine
+		PlanetIndex<Double> pi = makeIndex(false, 0);
+		pi.setValidation(PlanetIndex.Validation.OFF);
+		for (int i=0; i < 20_000; ++i) pi.add(n(i));
+		assertEquals(sequential(pi, null, null), parallel(pi, null, null));
+		assertEquals(sequential(pi, 500.0, 15_000.0), parallel(pi, 500.0, 15_000.0));
+		if (ForkJoinPool.getCommonPoolParallelism() < 2) return;
+		// the first planet is held up until another thread handles a planet,
+		// which can only happen if the rest of the spine was forked
+		// before this planet was handled
+		AtomicReference<Thread> first = new AtomicReference<>();
+		CountDownLatch other = new CountDownLatch(1);
+		pi.parallelDoAll((p) -> {
+			if (p.getDouble(MASS_INDEX) == 0.0) {
+				first.set(Thread.currentThread());
+				try {
+					other.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			} else if (first.get() != null && first.get() != Thread.currentThread()) {
+				other.countDown();
+			}
+		}, null, null);
+		assertEquals(0, other.getCount());
+	}
+}
@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uwm.cs351.ConcurrentPlanetIndex;
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PersistentPlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetIndex.Validation;
+import junit.framework.TestCase;
+
+public class TestPersistentPlanetIndex extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	private PersistentPlanetIndex<Double> empty;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		empty = new PersistentPlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	private static List<Planet> all(PersistentPlanetIndex<Double> pi, Traversal t) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), null, null, t);
+		return results;
+	}
+
+	public void test0() {
+		assertEquals(0, empty.size());
+		assertSame(empty, empty.add(new Planet(new Object[Planet.numFields()])));
+		try {
+			empty.add(null);
+			fail("should not be able to add null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		Planet p1 = n(1), p2 = n(2), p3 = n(3);
+		PersistentPlanetIndex<Double> v1 = empty.add(p1);
+		PersistentPlanetIndex<Double> v2 = v1.add(p2);
+		PersistentPlanetIndex<Double> v3 = v2.add(p3);
+		assertSame(v3, v3.add(new Planet("Planet 3", 3)));
+		// old versions are unchanged
+		assertEquals(0, empty.size());
+		assertEquals(Arrays.asList(p1), all(v1, Traversal.IN_ORDER));
+		assertEquals(Arrays.asList(p1, p2), all(v2, Traversal.IN_ORDER));
+		assertEquals(Arrays.asList(p2, p1, p3), all(v3, Traversal.PRE_ORDER));
+		assertEquals(Arrays.asList(p3, p2, p1), all(v3, Traversal.REVERSE_ORDER));
+		assertEquals(3, v3.size());
+	}
+
+	public void test2() {
+		PersistentPlanetIndex<Double> base = empty.addAll(Arrays.asList(n(4), n(2), n(6), n(2)));
+		assertEquals(3, base.size());
+		PersistentPlanetIndex<Double> more = base.addAll(Arrays.asList(n(1), n(3), n(5), n(7)));
+		assertSame(more, more.addAll(Arrays.asList(n(1), n(7))));
+		assertEquals(3, base.size());
+		assertEquals(7, more.size());
+		List<Planet> l = all(more, Traversal.IN_ORDER);
+		for (int i=0; i < 7; ++i) {
+			assertEquals(i+1.0, l.get(i).getDouble(MASS_INDEX));
+		}
+	}
+
+	public void test3() {
+		ConcurrentPlanetIndex<Double> index = new ConcurrentPlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+		for (int i=0; i < 100; ++i) index.add(n(i));
+		PersistentPlanetIndex<Double> snapshot = index.snapshot();
+		for (int i=100; i < 200; ++i) index.add(n(i));
+		assertEquals(100, snapshot.size());
+		assertEquals(100, all(snapshot, Traversal.IN_ORDER).size());
+		assertEquals(200, index.size());
+		assertSame(index.snapshot(), index.snapshot());
+	}
+
+	public void test4() {
+		// by default, a new version checks only the path of the planet added
+		assertEquals(Validation.INCREMENTAL, empty.getValidation());
+		PersistentPlanetIndex<Double> pi = empty;
+		for (int i=0; i < 5000; ++i) pi = pi.add(n(i));
+		assertEquals(Validation.INCREMENTAL, pi.getValidation());
+		pi = pi.addAll(Arrays.asList(n(-1), n(5000), n(17)));
+		assertEquals(5002, pi.size());
+		PersistentPlanetIndex<Double> full = pi.withValidation(Validation.FULL);
+		assertEquals(Validation.FULL, full.getValidation());
+		assertEquals(Validation.INCREMENTAL, pi.getValidation());
+		assertEquals(all(pi, Traversal.IN_ORDER), all(full, Traversal.IN_ORDER));
+		assertEquals(Validation.FULL, full.add(n(6000)).getValidation());
+		PersistentPlanetIndex<Double> sampled = empty.withValidation(Validation.SAMPLED, 10);
+		for (int i=0; i < 100; ++i) sampled = sampled.add(n(i));
+		assertEquals(100, sampled.size());
+		try {
+			pi.withValidation(null);
+			fail("should not accept a null mode");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,64 @@
+import java.util.Random;
+
+import edu.uwm.cs351.Planet;
+import junit.framework.TestCase;
+
+public class TestPlanet extends TestCase {
+
+	private Random random;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		random = new Random(351);
+	}
+
+	private static final String[] STRINGS = { "", "a", "a b", "ab", "b", "Kepler-1 b", "Kepler-1", "Kepler-10 b" };
+
+	/**
+	 * Generate a random planet whose fields are drawn from small
+	 * sets of values, so that many fields are equal, missing,
+	 * or prefixes of each other.
+	 */
+	private Planet randomPlanet() {
+		Object[] data = new Object[Planet.numFields()];
+		for (int i=0; i < data.length; ++i) {
+			if (random.nextInt(3) == 0) continue;
+			Class<?> type = Planet.getFieldType(i);
+			if (type == Integer.class) data[i] = random.nextInt(12);
+			else if (type == Double.class) data[i] = random.nextInt(12) / 4.0;
+			else data[i] = STRINGS[random.nextInt(STRINGS.length)];
+		}
+		return new Planet(data);
+	}
+
+	private static int sign(int c) {
+		return Integer.signum(c);
+	}
+
+	public void test0() {
+		Planet p = new Planet("TestA", 1);
+		assertEquals(0, p.compareTo(new Planet("TestA", 1)));
+		assertTrue(p.compareTo(new Planet("TestB", 1)) < 0);
+		assertTrue(p.compareTo(new Planet("TestA", 11)) < 0);
+		assertTrue(p.compareTo(new Planet("TestA", 0)) > 0);
+		assertTrue(new Planet("TestA", 10).compareTo(new Planet("TestA", 9)) < 0);
+	}
+
+	public void test1() {
+		Planet p = new Planet("TestA", 1);
+		Planet q = new Planet(null, 1);
+		assertEquals(sign(p.dataString().compareTo(q.dataString())), sign(p.compareTo(q)));
+		assertEquals(sign(q.dataString().compareTo(p.dataString())), sign(q.compareTo(p)));
+	}
+
+	public void test2() {
+		for (int i=0; i < 100_000; ++i) {
+			Planet p = randomPlanet();
+			Planet q = randomPlanet();
+			int expected = sign(p.dataString().compareTo(q.dataString()));
+			assertEquals(p.dataString() + " vs " + q.dataString(), expected, sign(p.compareTo(q)));
+			assertEquals(expected == 0, p.equals(q));
+		}
+	}
+}
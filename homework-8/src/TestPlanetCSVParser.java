@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetCSVParser;
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetTable;
+import junit.framework.TestCase;
+
+public class TestPlanetCSVParser extends TestCase {
+
+	private static final String LINE1 = "Kepler-1 b,0,0.5,1.2,2.47,0.036,0,,,,83.9,1339,,transit,2006,16/03/03,19 07 14,+49 18 59,450,0.98,0.95,-0.15,5750,4.5,Confirmed planets";
+	private static final String LINE2 = "Orphan,3,25.0,,,,,,,,,,,imaging,2012,,,,150,,,,,,\"Confirmed planets, Orphan planets\"";
+	private static final String LINE3 = "Short,2,1e-3,-4.5E+2";
+
+	private PlanetCSVParser parser(String text) {
+		return new PlanetCSVParser(new StringReader(text));
+	}
+
+	private void assertSameFields(String line, PlanetCSVParser in) {
+		String[] expected = PlanetDataReader.breakCSV(line);
+		assertEquals(expected.length, in.fieldCount());
+		for (int i=0; i < expected.length; ++i) {
+			assertEquals(expected[i], in.getString(i));
+			assertEquals(expected[i].isEmpty(), in.isEmpty(i));
+		}
+	}
+
+	public void test00() throws IOException {
+		assertFalse(parser("").next());
+		assertFalse(parser("# comment only\n").next());
+		assertFalse(parser("\n\n# comment\r\n").next());
+	}
+
+	public void test01() throws IOException {
+		PlanetCSVParser in = parser("# header\n" + LINE1 + "\n" + LINE2 + "\r\n\n" + LINE3);
+		assertTrue(in.next());
+		assertSameFields(LINE1, in);
+		assertTrue(in.next());
+		assertSameFields(LINE2, in);
+		assertTrue(in.next());
+		assertSameFields(LINE3, in);
+		assertFalse(in.next());
+		assertFalse(in.next());
+	}
+
+	public void test02() throws IOException {
+		PlanetCSVParser in = parser(LINE3 + "\n");
+		assertTrue(in.next());
+		assertEquals(2, in.getInt(1));
+		assertEquals(1e-3, in.getDouble(2));
+		assertEquals(-450.0, in.getDouble(3));
+		try {
+			in.getDouble(4);
+			fail("there is no field 4");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void test03() throws IOException {
+		PlanetCSVParser in = parser("a,b\"c\n");
+		try {
+			in.next();
+			fail("quote in the middle of a field");
+		} catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		in = parser("x,1,1.2.3\n");
+		assertTrue(in.next());
+		try {
+			in.getDouble(2);
+			fail("not a number");
+		} catch (NumberFormatException ex) {
+			// expected
+		}
+	}
+
+	public void test04() throws IOException {
+		PlanetCSVParser in = parser(LINE1 + "\n" + LINE2 + "\n" + LINE3 + "\n");
+		Object[] data = new Object[Planet.numFields()];
+		String[] lines = { LINE1, LINE2, LINE3 };
+		for (String line : lines) {
+			assertTrue(in.next());
+			Planet p = new Planet(in.getFields(data));
+			String[] fields = PlanetDataReader.breakCSV(line);
+			assertEquals(fields[0], p.getField(0));
+			assertEquals(Integer.valueOf(fields[1]), p.getField(1));
+			assertEquals(Double.valueOf(fields[2]), p.getField(2));
+			if (fields[3].isEmpty()) assertNull(p.getField(3));
+			else assertEquals(Double.valueOf(fields[3]), p.getField(3));
+		}
+	}
+
+	public void test10() throws IOException {
+		Random r = new Random(1);
+		StringBuilder sb = new StringBuilder();
+		double[] expected = new double[10_000];
+		for (int i=0; i < expected.length; ++i) {
+			String s;
+			switch (i % 5) {
+			case 0: s = Double.toString(r.nextDouble()); break;
+			case 1: s = Double.toString(r.nextGaussian() * 1e6); break;
+			case 2: s = String.format(Locale.ROOT, "%.4f", r.nextDouble() * 100); break;
+			case 3: s = Double.toString(Math.scalb(r.nextDouble(), r.nextInt(200) - 100)); break;
+			default: s = Integer.toString(r.nextInt(100000)); break;
+			}
+			expected[i] = Double.parseDouble(s);
+			sb.append("P").append(i).append(",").append(i % 4).append(",").append(s).append('\n');
+		}
+		PlanetCSVParser in = parser(sb.toString()); // much longer than the buffer
+		for (int i=0; i < expected.length; ++i) {
+			assertTrue(in.next());
+			assertEquals("P" + i, in.getString(0));
+			assertEquals(i % 4, in.getInt(1));
+			assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(in.getDouble(2)));
+		}
+		assertFalse(in.next());
+	}
+
+	public void test11() throws IOException {
+		StringBuilder sb = new StringBuilder("Long,1,");
+		for (int i=0; i < 100_000; ++i) sb.append('7');
+		PlanetCSVParser in = parser(sb.toString());
+		assertTrue(in.next());
+		assertEquals(Double.parseDouble(sb.substring(7)), in.getDouble(2));
+	}
+
+	private Path writeTemp(String text) throws IOException {
+		Path file = Files.createTempFile("planets", ".csv");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	public void test20() throws IOException {
+		String text = "# header\n" + LINE1 + "\n" + LINE2 + "\r\n" + LINE3;
+		Path file = writeTemp(text);
+		try (FileChannel ch = FileChannel.open(file);
+			PlanetCSVParser in = new PlanetCSVParser(ch, 0, ch.size())) {
+			assertTrue(in.next());
+			assertSameFields(LINE1, in);
+			assertTrue(in.next());
+			assertSameFields(LINE2, in);
+			assertTrue(in.next());
+			assertSameFields(LINE3, in);
+			assertEquals(-450.0, in.getDouble(3));
+			assertFalse(in.next());
+		}
+	}
+
+	public void test21() throws IOException {
+		String line = "Gliese 581 \u00e9,0,0.05";
+		Path file = writeTemp(line + "\n" + LINE3 + "\n");
+		try (FileChannel ch = FileChannel.open(file)) {
+			long second = line.getBytes(StandardCharsets.UTF_8).length + 1;
+			PlanetCSVParser in = new PlanetCSVParser(ch, 0, second);
+			assertTrue(in.next());
+			assertEquals("Gliese 581 \u00e9", in.getString(0));
+			assertEquals(0.05, in.getDouble(2));
+			assertFalse(in.next());
+			in = new PlanetCSVParser(ch, second, ch.size());
+			assertTrue(in.next());
+			assertSameFields(LINE3, in);
+			assertFalse(in.next());
+		}
+	}
+
+	public void test22() throws IOException {
+		String text = LINE1 + "\n" + LINE2 + "\n" + LINE3 + "\n";
+		PlanetDataReader fromFile = new PlanetDataReader(writeTemp(text), new PlanetTable());
+		PlanetDataReader fromReader = new PlanetDataReader(new StringReader(text));
+		PlanetIndex<Double> i1 = fromFile.createDoublePlanetIndex(2);
+		PlanetIndex<Double> i2 = fromReader.createDoublePlanetIndex(2);
+		List<Planet> l1 = new ArrayList<>(), l2 = new ArrayList<>();
+		i1.doAll((p) -> l1.add(p), null, null, Traversal.IN_ORDER);
+		i2.doAll((p) -> l2.add(p), null, null, Traversal.IN_ORDER);
+		assertEquals(3, l1.size());
+		assertEquals(l2, l1);
+	}
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import edu.uwm.cs351.DoublePlanetIndex;
+import edu.uwm.cs351.IntPlanetIndex;
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetTable;
+import junit.framework.TestCase;
+
+public class TestPlanetDataReader extends TestCase {
+
+	private static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+	private static final int FLAG_INDEX = Planet.getFieldIndex("binary_flag");
+
+	/**
+	 * Generate a catalogue in CSV, sorted by name as the real one is.
+	 * @param n number of planets
+	 * @return text of the catalogue
+	 */
+	protected static String catalogue(int n) {
+		StringBuilder sb = new StringBuilder("# name,binary_flag,mass,...\n");
+		for (int i=0; i < n; ++i) {
+			sb.append(String.format("Planet %07d", i)).append(',').append(i % 4).append(',');
+			if (i % 10 != 0) sb.append(i % 1000 * 0.25);
+			sb.append(",1.2,2.47,0.036,0,,,,83.9,1339,,");
+			sb.append(i % 3 == 0 ? "transit" : "RV");
+			sb.append(",2006,16/03/03,19 07 14,+49 18 59,450,0.98,0.95,-0.15,5750,4.5,\"Confirmed planets, Kepler\"\n");
+		}
+		return sb.toString();
+	}
+
+	protected static Path writeTemp(String text) throws IOException {
+		Path file = Files.createTempFile("planets", ".csv");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	protected static <K extends Comparable<K>> List<Planet> inOrder(PlanetIndex<K> pi) {
+		List<Planet> result = new ArrayList<>();
+		pi.doAll((p) -> result.add(p), null, null, Traversal.IN_ORDER);
+		return result;
+	}
+
+	public void test00() {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(""));
+		assertEquals(0, reader.createStringPlanetIndex(NAME_INDEX).size());
+	}
+
+	public void test01() {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(catalogue(100)));
+		try {
+			reader.createDoublePlanetIndex(FLAG_INDEX);
+			fail("binary flag is not a double field");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		try {
+			reader.createIntegerPlanetIndex(MASS_INDEX);
+			fail("mass is not an integer field");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void test02() {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(catalogue(100)));
+		assertEquals(100, reader.createStringPlanetIndex(NAME_INDEX).size());
+		assertEquals(90, reader.createDoublePlanetIndex(MASS_INDEX).size());
+		assertEquals(100, reader.createIntegerPlanetIndex(FLAG_INDEX).size());
+		assertEquals(90, reader.createDoubleIndex(MASS_INDEX).size());
+		assertEquals(100, reader.createIntIndex(FLAG_INDEX).size());
+	}
+
+	public void test03() {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(catalogue(100)));
+		PlanetIndex<Double> mass = reader.getDoublePlanetIndex(MASS_INDEX);
+		assertEquals(90, mass.size());
+		assertSame(mass, reader.getDoublePlanetIndex(MASS_INDEX));
+		assertNotSame(mass, reader.createDoublePlanetIndex(MASS_INDEX));
+		assertSame(reader.getIntIndex(FLAG_INDEX), reader.getIntIndex(FLAG_INDEX));
+		assertSame(reader.getDoubleIndex(MASS_INDEX), reader.getDoubleIndex(MASS_INDEX));
+		assertEquals(100, reader.getIntegerPlanetIndex(FLAG_INDEX).size());
+		assertEquals(inOrder(reader.createStringPlanetIndex(NAME_INDEX)), inOrder(reader.getStringPlanetIndex(NAME_INDEX)));
+		try {
+			reader.getDoubleIndex(FLAG_INDEX);
+			fail("binary flag is not a double field");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		try {
+			reader.getIntegerPlanetIndex(-1);
+			fail("there is no field -1");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * A pool that counts the chunks submitted to it.
+	 */
+	private static class CountingPool extends ForkJoinPool {
+		int chunks;
+
+		CountingPool(int parallelism) {
+			super(parallelism);
+		}
+
+		@Override
+		public <T> ForkJoinTask<T> submit(Callable<T> task) {
+			++chunks;
+			return super.submit(task);
+		}
+	}
+
+	public void test10() throws IOException {
+		String text = catalogue(1000); // about 150KB, several chunks
+		Path file = writeTemp(text);
+		CountingPool pool = new CountingPool(4);
+		try {
+			PlanetDataReader sequential = new PlanetDataReader(new StringReader(text));
+			PlanetDataReader parallel = new PlanetDataReader(file, null, pool);
+			assertTrue(pool.chunks > 1);
+			PlanetIndex<String> expected = sequential.createStringPlanetIndex(NAME_INDEX);
+			PlanetIndex<String> actual = parallel.createStringPlanetIndex(NAME_INDEX);
+			assertEquals(1000, actual.size());
+			assertEquals(inOrder(expected), inOrder(actual));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public void test11() throws IOException {
+		String text = catalogue(1000);
+		Path file = writeTemp(text);
+		PlanetTable table = new PlanetTable();
+		CountingPool pool = new CountingPool(3);
+		try {
+			PlanetDataReader parallel = new PlanetDataReader(file, table, pool);
+			assertTrue(pool.chunks > 1);
+			assertEquals(1000, table.size());
+			// rows are added in the order of the file, with the same values
+			PlanetTable expected = new PlanetTable();
+			new PlanetDataReader(new StringReader(text), expected);
+			for (int i=0; i < table.size(); ++i) {
+				assertEquals(String.format("Planet %07d", i), table.getString(i, NAME_INDEX));
+				for (int f=0; f < Planet.numFields(); ++f) {
+					assertEquals(expected.getField(i, f), table.getField(i, f));
+				}
+			}
+			int method = Planet.getFieldIndex("discovery_method");
+			assertEquals(2, table.dictionarySize(method));
+			assertEquals(900, parallel.createDoubleIndex(MASS_INDEX).size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public void test20() throws IOException {
+		String old = catalogue(200);
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(old));
+		PlanetIndex<Double> mass = reader.getDoublePlanetIndex(MASS_INDEX);
+		PlanetDataReader.Changes changes = reader.refresh(new StringReader(old));
+		assertEquals(0, changes.getAdded() + changes.getChanged() + changes.getRemoved());
+
+		// drop planet 5, change the mass of planet 7, and add planet 999
+		String[] lines = old.split("\n");
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			if (line.startsWith("Planet 0000005,")) continue;
+			if (line.startsWith("Planet 0000007,")) line = line.replace(",1.75,", ",123.5,");
+			sb.append(line).append('\n');
+		}
+		sb.append(catalogue(1000).split("\n")[1000]).append('\n');
+		changes = reader.refresh(writeTemp(sb.toString()));
+		assertEquals(1, changes.getAdded());
+		assertEquals(1, changes.getChanged());
+		assertEquals(1, changes.getRemoved());
+		assertEquals(200, reader.getStringPlanetIndex(NAME_INDEX).size());
+
+		PlanetDataReader fresh = new PlanetDataReader(new StringReader(sb.toString()));
+		assertEquals(inOrder(fresh.createStringPlanetIndex(NAME_INDEX)), inOrder(reader.getStringPlanetIndex(NAME_INDEX)));
+		assertEquals(inOrder(fresh.createDoublePlanetIndex(MASS_INDEX)), inOrder(mass));
+		assertEquals(1, mass.countInRange(123.5, 123.5));
+
+		changes = reader.refresh(new StringReader(""));
+		assertEquals(200, changes.getRemoved());
+		assertEquals(0, mass.size());
+	}
+
+	public void test30() throws IOException {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(catalogue(500)), new PlanetTable());
+		PlanetIndex<Double> mass = reader.getDoublePlanetIndex(MASS_INDEX);
+		IntPlanetIndex flags = reader.getIntIndex(FLAG_INDEX);
+		DoublePlanetIndex masses = reader.getDoubleIndex(MASS_INDEX);
+		Path file = Files.createTempFile("planets", ".snapshot");
+		file.toFile().deleteOnExit();
+		reader.writeSnapshot(file);
+
+		PlanetDataReader copy = PlanetDataReader.readSnapshot(file);
+		assertEquals(inOrder(reader.getStringPlanetIndex(NAME_INDEX)), inOrder(copy.getStringPlanetIndex(NAME_INDEX)));
+		assertEquals(inOrder(mass), inOrder(copy.getDoublePlanetIndex(MASS_INDEX)));
+		assertEquals(flags.size(), copy.getIntIndex(FLAG_INDEX).size());
+		List<Planet> l1 = new ArrayList<>(), l2 = new ArrayList<>();
+		flags.doAll((p) -> l1.add(p), 2, 3, Traversal.IN_ORDER);
+		copy.getIntIndex(FLAG_INDEX).doAll((p) -> l2.add(p), 2, 3, Traversal.IN_ORDER);
+		assertEquals(l1, l2);
+		assertEquals(masses.size(), copy.getDoubleIndex(MASS_INDEX).size());
+		// the shared indices of the copy are kept up to date too
+		assertTrue(copy.remove(l2.get(0)));
+		assertEquals(mass.size() - 1, copy.getDoublePlanetIndex(MASS_INDEX).size());
+		assertEquals(flags.size() - 1, copy.getIntIndex(FLAG_INDEX).size());
+	}
+
+	public void test31() throws IOException {
+		Path file = writeTemp(catalogue(10));
+		try {
+			PlanetDataReader.readSnapshot(file);
+			fail("not a snapshot");
+		} catch (IOException ex) {
+			// expected
+		}
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(catalogue(10)));
+		reader.writeSnapshot(file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+		try {
+			PlanetDataReader.readSnapshot(file);
+			fail("snapshot is truncated");
+		} catch (IOException ex) {
+			// expected
+		}
+	}
+
+	public void test32() throws IOException {
+		// a snapshot that cannot be mapped as one buffer
+		Path file = Files.createTempFile("planets", ".snapshot");
+		file.toFile().deleteOnExit();
+		try (RandomAccessFile f = new RandomAccessFile(file.toFile(), "rw")) {
+			f.writeInt(0x504c4e54);
+			f.setLength(3L << 30); // sparse, so that no space is used
+		}
+		try {
+			PlanetDataReader.readSnapshot(file);
+			fail("snapshot is too large");
+		} catch (IOException ex) {
+			// expected
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import junit.framework.TestCase;
+
+public class TestPlanetIndexIterator extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	private PlanetIndex<Double> pi;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		pi = new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX), true);
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	private static <K extends Comparable<K>> List<Planet> doAll(PlanetIndex<K> pi, K lo, K hi) {
+		List<Planet> result = new ArrayList<>();
+		pi.doAll((p) -> result.add(p), lo, hi, Traversal.IN_ORDER);
+		return result;
+	}
+
+	private static List<Planet> iterate(Iterator<Planet> it) {
+		List<Planet> result = new ArrayList<>();
+		while (it.hasNext()) result.add(it.next());
+		return result;
+	}
+
+	/**
+	 * Split a spliterator as far as it goes and put everything
+	 * from the parts together in order.
+	 */
+	private static void splitAll(Spliterator<Planet> s, List<Planet> result) {
+		Spliterator<Planet> prefix = s.trySplit();
+		if (prefix == null) {
+			s.forEachRemaining((p) -> result.add(p));
+		} else {
+			splitAll(prefix, result);
+			splitAll(s, result);
+		}
+	}
+
+	public void test0() {
+		Iterator<Planet> it = pi.iterator(null, null);
+		assertFalse(it.hasNext());
+		try {
+			it.next();
+			fail("nothing to iterate");
+		} catch (NoSuchElementException ex) {
+			// expected
+		}
+		assertFalse(pi.spliterator(null, null).tryAdvance((p) -> fail("nothing to advance to")));
+		assertNull(pi.spliterator(null, null).trySplit());
+	}
+
+	public void test1() {
+		for (int i=0; i < 100; ++i) pi.add(n(i * 37 % 100));
+		assertEquals(doAll(pi, null, null), iterate(pi.iterator(null, null)));
+		assertEquals(doAll(pi, 10.0, 20.0), iterate(pi.iterator(10.0, 20.0)));
+		assertEquals(doAll(pi, 10.5, 20.5), iterate(pi.iterator(10.5, 20.5)));
+		assertEquals(doAll(pi, null, 0.0), iterate(pi.iterator(null, 0.0)));
+		assertEquals(doAll(pi, 99.0, null), iterate(pi.iterator(99.0, null)));
+		assertTrue(iterate(pi.iterator(50.0, 40.0)).isEmpty());
+	}
+
+	public void test2() {
+		PlanetIndex<Double> unbalanced = new PlanetIndex<>((p) -> (Double)p.getField(MASS_INDEX));
+		for (int i=0; i < 100; ++i) {
+			unbalanced.add(n(i));
+			unbalanced.add(new Planet("Twin " + i, i));
+		}
+		assertEquals(doAll(unbalanced, 30.0, 60.0), iterate(unbalanced.iterator(30.0, 60.0)));
+		List<Planet> parts = new ArrayList<>();
+		splitAll(unbalanced.spliterator(30.0, 60.0), parts);
+		assertEquals(doAll(unbalanced, 30.0, 60.0), parts);
+	}
+
+	public void test3() {
+		for (int i=0; i < 1000; ++i) pi.add(n(i));
+		for (double lo = 0; lo < 1000; lo += 97) {
+			List<Planet> parts = new ArrayList<>();
+			splitAll(pi.spliterator(lo, lo + 300), parts);
+			assertEquals(doAll(pi, lo, lo + 300), parts);
+		}
+		Spliterator<Planet> s = pi.spliterator(null, null);
+		Spliterator<Planet> prefix = s.trySplit();
+		assertNotNull(prefix);
+		assertEquals(1000, s.estimateSize() + prefix.estimateSize());
+	}
+
+	public void test4() {
+		for (int i=0; i < 1000; ++i) pi.add(n(i));
+		List<Planet> parallel = StreamSupport.stream(pi.spliterator(100.0, 899.0), true).collect(Collectors.toList());
+		assertEquals(doAll(pi, 100.0, 899.0), parallel);
+		// a stream can stop early
+		List<Planet> first = StreamSupport.stream(pi.spliterator(500.0, null), false).limit(3).collect(Collectors.toList());
+		assertEquals(3, first.size());
+		assertEquals(502.0, first.get(2).getDouble(MASS_INDEX));
+	}
+
+	public void test5() {
+		for (int i=0; i < 10; ++i) pi.add(n(i));
+		Iterator<Planet> it = pi.iterator(null, null);
+		it.next();
+		pi.add(n(4));
+		it.next(); // no change
+		pi.add(n(100));
+		try {
+			it.next();
+			fail("index was changed");
+		} catch (ConcurrentModificationException ex) {
+			// expected
+		}
+		Spliterator<Planet> s = pi.spliterator(null, null);
+		pi.add(n(101));
+		try {
+			s.tryAdvance((p) -> {});
+			fail("index was changed");
+		} catch (ConcurrentModificationException ex) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,148 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetIndexStats;
+
+public class TestPlanetIndexStats extends PlanetIndexTestCase {
+
+	private PlanetIndexStats stats;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		stats = new PlanetIndexStats();
+	}
+
+	private static long sum(long[] histogram) {
+		long total = 0;
+		for (long count : histogram) total += count;
+		return total;
+	}
+
+	public void test0() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		assertNull(pi.getStats());
+		pi.add(n(1));
+		pi.setStats(stats);
+		assertSame(stats, pi.getStats());
+		assertEquals(1, stats.getHeight());
+		assertEquals(0, stats.getAdds());
+		pi.setStats(null);
+		pi.add(n(2));
+		assertEquals(0, stats.getAdds());
+	}
+
+	public void test1() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		pi.setStats(stats);
+		for (int i=0; i < 7; ++i) assertTrue(pi.add(n(i)));
+		assertFalse(pi.add(n(3)));
+		assertFalse(pi.add(new Planet(new Object[Planet.numFields()])));
+		assertEquals(7, stats.getAdds());
+		assertEquals(1, stats.getDuplicates());
+		assertEquals(1, stats.getNullKeys());
+		assertEquals(3, stats.getHeight());
+		assertEquals(8, sum(stats.getAddLatencyHistogram()));
+		// the duplicate is found at the root
+		assertEquals(0+1+2+2+3+3+3 + 1, stats.getComparisons());
+		assertTrue(pi.remove(n(6)));
+		assertFalse(pi.remove(n(6)));
+		assertEquals(1, stats.getRemoves());
+		assertEquals(15 + 3 + 2, stats.getComparisons());
+		stats.reset();
+		assertEquals(0, stats.getAdds());
+		assertEquals(0, sum(stats.getAddLatencyHistogram()));
+		assertEquals(3, stats.getHeight());
+	}
+
+	public void test2() {
+		PlanetIndex<Double> pi = makeIndex(false);
+		List<Planet> planets = new ArrayList<>();
+		for (int i=0; i < 15; ++i) planets.add(n(i));
+		planets.add(n(3));
+		planets.add(new Planet(new Object[Planet.numFields()]));
+		pi.setStats(stats);
+		pi.addAll(planets);
+		assertEquals(15, stats.getAdds());
+		assertEquals(1, stats.getDuplicates());
+		assertEquals(1, stats.getNullKeys());
+		assertEquals(4, stats.getHeight());
+		// not balanced: adding in order makes the tree deeper
+		for (int i=15; i < 20; ++i) pi.add(n(i));
+		assertEquals(9, stats.getHeight());
+		pi.setStats(new PlanetIndexStats());
+		assertEquals(9, pi.getStats().getHeight());
+	}
+
+	public void test3() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		for (int i=0; i < 1000; ++i) pi.add(n(i));
+		pi.setStats(stats);
+		for (Traversal t : Traversal.values()) {
+			pi.doAll((p) -> {}, 10.0, 20.0, t);
+		}
+		assertEquals(4, stats.getDoAlls());
+		assertEquals(4, sum(stats.getDoAllLatencyHistogram()));
+		// only a few more nodes than are in range are visited
+		assertTrue(stats.getNodesVisited() >= 4 * 11);
+		assertTrue(stats.getNodesVisited() < 4 * (11 + 2 * 10));
+		stats.reset();
+		pi.doAll((p) -> {}, null, null, true, 5, 10);
+		assertEquals(1, stats.getDoAlls());
+		assertTrue(stats.getNodesVisited() >= 10);
+		assertTrue(stats.getNodesVisited() < 10 + 2 * 10);
+		stats.reset();
+		pi.doAll((p) -> {}, null, null, Traversal.IN_ORDER);
+		assertEquals(1000, stats.getNodesVisited());
+	}
+
+	public void test4() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("edu.uwm.cs351:type=PlanetIndex,name=test");
+		server.registerMBean(stats, name);
+		try {
+			PlanetIndex<Double> pi = makeIndex(true);
+			pi.setStats(stats);
+			pi.add(n(1));
+			assertEquals(1L, server.getAttribute(name, "Adds"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Adds"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+	public void test5() {
+		// the height of an index that is not balanced stays exact
+		PlanetIndex<Double> pi = makeIndex(false);
+		pi.setStats(stats);
+		for (int i=0; i < 100; ++i) pi.add(n(i));
+		assertEquals(100, stats.getHeight());
+		for (int i=99; i >= 50; --i) pi.remove(n(i));
+		assertEquals(50, stats.getHeight());
+		assertEquals(pi.shapeStats().getHeight(), stats.getHeight());
+		pi.remove(n(0));
+		assertEquals(49, stats.getHeight());
+		pi.rebuild();
+		assertEquals(6, stats.getHeight());
+		// and after part of the tree is rebuilt
+		pi = makeIndex(false);
+		pi.setRebuildFactor(2.0);
+		pi.setStats(stats);
+		for (int i=0; i < 1000; ++i) {
+			pi.add(n(i));
+			assertEquals(pi.shapeStats().getHeight(), stats.getHeight());
+		}
+		for (int i=0; i < 1000; i += 3) {
+			pi.remove(n(i));
+			assertEquals(pi.shapeStats().getHeight(), stats.getHeight());
+		}
+	}
+}
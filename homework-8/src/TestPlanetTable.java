@@ -0,0 +1,202 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetTable;
+import junit.framework.TestCase;
+
+public class TestPlanetTable extends TestCase {
+
+	private static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+	private static final int FLAG_INDEX = Planet.getFieldIndex("binary_flag");
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+	private static final int METHOD_INDEX = Planet.getFieldIndex("discovery_method");
+
+	private PlanetTable table;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		table = new PlanetTable();
+	}
+
+	private static Object[] data(String name, Integer flag, Double mass, String method) {
+		Object[] data = new Object[Planet.numFields()];
+		data[NAME_INDEX] = name;
+		data[FLAG_INDEX] = flag;
+		data[MASS_INDEX] = mass;
+		data[METHOD_INDEX] = method;
+		return data;
+	}
+
+	static final String CSV =
+			"# name,flag,mass,...\n" +
+			"Kepler-1 b,0,0.5,1.2,2.47,0.036,0,,,,83.9,1339,,transit,2006,16/03/03,19 07 14,+49 18 59,450,0.98,0.95,-0.15,5750,4.5,Confirmed planets\n" +
+			"Earthlike,0,0.0033,,365,1.0,,,,,,290,,RV,2010,,,,20,1.04,,,5800,,\n" +
+			"Orphan,3,25.0,,,,,,,,,,,imaging,2012,,,,150,,,,,,\"Confirmed planets, Orphan planets\"\n";
+
+	public void test00() {
+		assertEquals(0, table.size());
+		assertEquals(0, table.add(data("A", 1, 2.0, "transit")));
+		assertEquals(1, table.add(data("B", null, null, null)));
+		assertEquals(2, table.size());
+	}
+
+	public void test01() {
+		table.add(data("A", 1, 2.0, "transit"));
+		try {
+			Object[] bad = data("A", 1, 2.0, "transit");
+			bad[MASS_INDEX] = "heavy";
+			table.add(bad);
+			fail("should not accept a string for mass");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		assertEquals(1, table.size());
+	}
+
+	public void test02() {
+		table.add(data("A", 1, 2.0, "transit"));
+		table.add(data("B", null, null, null));
+		assertFalse(table.isNull(0, MASS_INDEX));
+		assertTrue(table.isNull(1, MASS_INDEX));
+		assertTrue(table.isNull(1, FLAG_INDEX));
+		assertTrue(table.isNull(1, METHOD_INDEX));
+		assertEquals(2.0, table.getDouble(0, MASS_INDEX));
+		assertTrue(Double.isNaN(table.getDouble(1, MASS_INDEX)));
+		assertEquals(1, table.getInt(0, FLAG_INDEX, -1));
+		assertEquals(-1, table.getInt(1, FLAG_INDEX, -1));
+		assertEquals("transit", table.getString(0, METHOD_INDEX));
+		assertNull(table.getString(1, METHOD_INDEX));
+		assertEquals(Integer.valueOf(1), table.getField(0, FLAG_INDEX));
+		assertNull(table.getField(1, FLAG_INDEX));
+	}
+
+	public void test03() {
+		for (int i=0; i < 1000; ++i) {
+			table.add(data("P" + i, i % 4, i * 0.5, i % 2 == 0 ? "transit" : "RV"));
+		}
+		assertEquals(1000, table.size());
+		assertEquals(2, table.dictionarySize(METHOD_INDEX));
+		assertEquals(1000, table.dictionarySize(NAME_INDEX));
+		assertEquals(499.5, table.getDouble(999, MASS_INDEX));
+		assertEquals("RV", table.getString(999, METHOD_INDEX));
+	}
+
+	public void test04() {
+		try {
+			table.getDouble(0, FLAG_INDEX);
+			fail("flag is not a double field");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		try {
+			table.get(0);
+			fail("no rows yet");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void test10() {
+		Object[] data = data("A", 1, 2.0, "transit");
+		Planet p = table.get(table.add(data));
+		Planet q = new Planet(data);
+		assertEquals("A", p.getField(NAME_INDEX));
+		assertEquals(2.0, p.getField(MASS_INDEX));
+		assertEquals(2.0, p.getDouble(MASS_INDEX));
+		assertEquals(q.dataString(), p.dataString());
+		assertEquals(q.toString(), p.toString());
+		assertEquals(0, p.compareTo(q));
+		assertEquals(0, q.compareTo(p));
+		assertEquals(q, p);
+		assertEquals(q.hashCode(), p.hashCode());
+	}
+
+	public void test11() {
+		Planet a = table.get(table.add(data("A", 1, 2.0, "transit")));
+		Planet b = table.get(table.add(data("A", 1, 10.0, "transit")));
+		Planet c = table.get(table.add(data("A", 1, 2.0, "transit")));
+		assertTrue(a.compareTo(b) > 0); // "2.0" > "10.0"
+		assertTrue(b.compareTo(a) < 0);
+		assertEquals(0, a.compareTo(c));
+	}
+
+	public void test20() {
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(CSV), table);
+		assertEquals(3, table.size());
+		assertEquals("Confirmed planets, Orphan planets", table.getString(2, Planet.getFieldIndex("planetary_lists")));
+		PlanetIndex<Double> mass = reader.createDoublePlanetIndex(MASS_INDEX);
+		List<String> names = new ArrayList<>();
+		mass.doAll((p) -> names.add((String)p.getField(NAME_INDEX)), null, null, Traversal.IN_ORDER);
+		assertEquals(List.of("Earthlike", "Kepler-1 b", "Orphan"), names);
+	}
+
+	public void test21() {
+		PlanetDataReader withTable = new PlanetDataReader(new StringReader(CSV), table);
+		PlanetDataReader without = new PlanetDataReader(new StringReader(CSV));
+		List<Planet> l1 = new ArrayList<>(), l2 = new ArrayList<>();
+		withTable.createIntegerPlanetIndex(FLAG_INDEX).doAll((p) -> l1.add(p), null, null, Traversal.IN_ORDER);
+		without.createIntegerPlanetIndex(FLAG_INDEX).doAll((p) -> l2.add(p), null, null, Traversal.IN_ORDER);
+		assertEquals(l2, l1);
+	}
+
+	public void test30() throws IOException {
+		new PlanetDataReader(new StringReader(CSV), table);
+		table.add(data(null, null, null, null));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		table.write(new DataOutputStream(bytes));
+		ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+		PlanetTable copy = PlanetTable.read(in);
+		assertFalse(in.hasRemaining());
+		assertEquals(4, copy.size());
+		for (int r=0; r < 4; ++r) {
+			for (int f=0; f < Planet.numFields(); ++f) {
+				assertEquals(table.getField(r, f), copy.getField(r, f));
+			}
+		}
+		assertEquals(table.dictionarySize(METHOD_INDEX), copy.dictionarySize(METHOD_INDEX));
+		try {
+			PlanetTable.read(ByteBuffer.wrap(bytes.toByteArray(), 0, bytes.size() - 1));
+			fail("table is truncated");
+		} catch (IOException ex) {
+			// expected
+		}
+	}
+
+	private static void assertCorrupt(byte[] bytes, int offset, int value) {
+		ByteBuffer in = ByteBuffer.wrap(bytes.clone());
+		in.putInt(offset, value);
+		try {
+			PlanetTable.read(in);
+			fail("table is corrupt");
+		} catch (IOException ex) {
+			assertEquals("corrupt snapshot", ex.getMessage());
+		}
+	}
+
+	public void test31() throws IOException {
+		assertEquals(0, NAME_INDEX);
+		table.add(data("A", 1, 2.0, "RV"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.write(new DataOutputStream(out));
+		byte[] bytes = out.toByteArray();
+		// fields, rows, then the name column: length, entries, "A" and its code
+		assertEquals(1, PlanetTable.read(ByteBuffer.wrap(bytes)).size());
+		assertCorrupt(bytes, 4, -1);
+		assertCorrupt(bytes, 4, Integer.MAX_VALUE);
+		assertCorrupt(bytes, 16, -3);
+		assertCorrupt(bytes, 20, -5);
+		assertCorrupt(bytes, 20, 1 << 30);
+		assertCorrupt(bytes, 25, 1);
+		assertCorrupt(bytes, 25, -2);
+	}
+}
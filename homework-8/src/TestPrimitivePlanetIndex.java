@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.cs351.DoublePlanetIndex;
+import edu.uwm.cs351.IntPlanetIndex;
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import junit.framework.TestCase;
+
+public class TestPrimitivePlanetIndex extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+	private static final int FLAG_INDEX = Planet.getFieldIndex("binary_flag");
+
+	private DoublePlanetIndex di;
+	private IntPlanetIndex ii;
+
+	private Planet p1 = new Planet("TestA",1);
+	private Planet p2 = new Planet("TestA",2);
+	private Planet p3 = new Planet("TestA",3);
+	private Planet d2 = new Planet("TestA",2);
+	private Planet s2 = new Planet("TestB",2);
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		di = new DoublePlanetIndex((p) -> {
+			Double mass = (Double)p.getField(MASS_INDEX);
+			return mass == null ? Double.NaN : mass;
+		});
+		ii = new IntPlanetIndex((p) -> {
+			Integer flag = (Integer)p.getField(FLAG_INDEX);
+			return flag == null ? IntPlanetIndex.MISSING : flag;
+		});
+	}
+
+	private Planet withFlag(String name, int flag) {
+		Object[] data = new Object[Planet.numFields()];
+		data[0] = name;
+		data[FLAG_INDEX] = flag;
+		return new Planet(data);
+	}
+
+	private List<Planet> collect(DoublePlanetIndex pi, double lo, double hi, Traversal t) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), lo, hi, t);
+		return results;
+	}
+
+	private List<Planet> collect(IntPlanetIndex pi, int lo, int hi, Traversal t) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), lo, hi, t);
+		return results;
+	}
+
+	public void test00() {
+		assertEquals(0, di.size());
+		assertEquals(0, ii.size());
+		assertEquals(0, collect(di, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.IN_ORDER).size());
+	}
+
+	public void test01() {
+		try {
+			di.add(null);
+			fail("should not be able to add null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+		try {
+			new DoublePlanetIndex(null);
+			fail("should not accept a null extractor");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test02() {
+		assertFalse(di.add(new Planet(new Object[Planet.numFields()])));
+		assertFalse(ii.add(p1));
+		assertEquals(0, di.size());
+		assertEquals(0, ii.size());
+	}
+
+	public void test10() {
+		assertTrue(di.add(p2));
+		assertTrue(di.add(s2));
+		assertFalse(di.add(d2));
+		assertTrue(di.add(p1));
+		assertTrue(di.add(p3));
+		assertEquals(4, di.size());
+		assertEquals(List.of(p1, p2, s2, p3), collect(di, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.IN_ORDER));
+		assertEquals(List.of(p2, s2), collect(di, 1.5, 2.0, Traversal.IN_ORDER));
+		assertEquals(List.of(p2, s2, p3), collect(di, 2.0, Double.POSITIVE_INFINITY, Traversal.IN_ORDER));
+		assertEquals(List.of(), collect(di, 3.5, 4.0, Traversal.IN_ORDER));
+		assertEquals(List.of(), collect(di, 3.0, 2.0, Traversal.IN_ORDER));
+		assertEquals(List.of(p3, s2, p2, p1), collect(di, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.REVERSE_ORDER));
+		assertEquals(List.of(s2, p2), collect(di, 1.5, 2.0, Traversal.REVERSE_ORDER));
+	}
+
+	public void test11() {
+		for (int i=0; i < 1000; ++i) {
+			assertTrue(di.add(new Planet("Planet " + i, i)));
+		}
+		assertEquals(1000, di.size());
+		assertEquals(11, collect(di, 100.0, 110.0, Traversal.PRE_ORDER).size());
+		assertEquals(11, collect(di, 100.0, 110.0, Traversal.POST_ORDER).size());
+		assertEquals(11, collect(di, 100.0, 110.0, Traversal.IN_ORDER).size());
+	}
+
+	public void test12() {
+		PlanetIndex<String> names = new PlanetIndex<>((p) -> (String)p.getField(0));
+		names.add(p3);
+		names.add(s2);
+		names.add(p1);
+		di.addAll(names);
+		assertEquals(List.of(p1, s2, p3), collect(di, 0.0, 5.0, Traversal.IN_ORDER));
+	}
+
+	public void test20() {
+		Planet a = withFlag("A", 0), b = withFlag("B", 3), c = withFlag("C", 3), d = withFlag("D", 1);
+		assertTrue(ii.add(a));
+		assertTrue(ii.add(b));
+		assertTrue(ii.add(c));
+		assertTrue(ii.add(d));
+		assertFalse(ii.add(withFlag("C", 3)));
+		assertEquals(4, ii.size());
+		assertEquals(List.of(b, c), collect(ii, 3, 3, Traversal.IN_ORDER));
+		assertEquals(List.of(a, d), collect(ii, Integer.MIN_VALUE, 2, Traversal.IN_ORDER));
+		assertEquals(List.of(a, d, b, c), collect(ii, Integer.MIN_VALUE, Integer.MAX_VALUE, Traversal.IN_ORDER));
+		assertEquals(List.of(c, b, d), collect(ii, 1, Integer.MAX_VALUE, Traversal.REVERSE_ORDER));
+	}
+
+	public void test30() {
+		for (int i=0; i < 1000; ++i) {
+			di.add(new Planet("Planet " + i, i % 100));
+		}
+		assertEquals(500, di.rank(50.0));
+		assertEquals(510, di.rank(50.5));
+		assertEquals(0, di.rank(Double.NEGATIVE_INFINITY));
+		assertEquals(30, di.countInRange(10.0, 12.0));
+		assertEquals(0, di.countInRange(12.0, 10.0));
+		assertEquals(1000, di.countInRange(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+		List<Planet> all = collect(di, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.IN_ORDER);
+		for (int i=0; i < 1000; ++i) {
+			assertSame(all.get(i), di.select(i));
+		}
+		try {
+			di.select(1000);
+			fail("should not select past the end");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void test31() {
+		Planet a = withFlag("A", 0), b = withFlag("B", 3), c = withFlag("C", 3);
+		ii.addAll(List.of(c, a, b));
+		assertEquals(1, ii.rank(3));
+		assertEquals(2, ii.countInRange(3, Integer.MAX_VALUE));
+		assertSame(b, ii.select(1));
+		ii.remove(a);
+		assertSame(c, ii.select(1));
+		assertEquals(0, ii.rank(3));
+	}
+
+	public void test32() {
+		List<Planet> planets = new ArrayList<>();
+		for (int i=0; i < 1000; ++i) {
+			planets.add(new Planet("Planet " + i, 999 - i));
+		}
+		planets.add(planets.get(0));
+		planets.add(new Planet(new Object[Planet.numFields()]));
+		di.addAll(planets);
+		assertEquals(1000, di.size());
+		assertEquals(planets.get(999), di.select(0));
+		assertEquals(planets.get(0), di.select(999));
+		// adding to a non-empty index still works one at a time
+		di.addAll(List.of(p1, planets.get(5)));
+		assertEquals(1001, di.size());
+	}
+
+	public void test40() {
+		assertEquals(PlanetIndex.Validation.FULL, di.getValidation());
+		di.setValidation(PlanetIndex.Validation.INCREMENTAL);
+		assertEquals(PlanetIndex.Validation.INCREMENTAL, di.getValidation());
+		assertEquals(PlanetIndex.Validation.FULL, ii.getValidation());
+		for (int i=0; i < 1000; ++i) {
+			di.add(new Planet("Planet " + i, i));
+		}
+		for (int i=0; i < 1000; i += 2) {
+			assertTrue(di.remove(new Planet("Planet " + i, i)));
+		}
+		assertEquals(500, di.size());
+		assertEquals(250, di.rank(500.0));
+		try {
+			ii.setValidation(null);
+			fail("should not accept a null mode");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	private List<Planet> collect(DoublePlanetIndex pi, double lo, double hi, boolean descending, int offset, int limit) {
+		List<Planet> results = new ArrayList<>();
+		pi.doAll((p) -> results.add(p), lo, hi, descending, offset, limit);
+		return results;
+	}
+
+	public void test50() {
+		for (int i=0; i < 1000; ++i) {
+			di.add(new Planet("Planet " + i, i));
+		}
+		List<Planet> all = collect(di, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.IN_ORDER);
+		assertEquals(all.subList(990, 1000), collect(di, 20.0, Double.POSITIVE_INFINITY, false, 970, 10));
+		assertEquals(List.of(all.get(999), all.get(998), all.get(997)), collect(di, 20.0, Double.POSITIVE_INFINITY, true, 0, 3));
+		assertEquals(all.subList(105, 111), collect(di, 100.0, 110.0, false, 5, 100));
+		assertEquals(List.of(all.get(105), all.get(104)), collect(di, 100.0, 110.0, true, 5, 2));
+		assertEquals(List.of(), collect(di, 100.0, 110.0, false, 11, 5));
+		assertEquals(List.of(), collect(di, 100.0, 110.0, false, 0, 0));
+		try {
+			di.doAll((p) -> {}, 0.0, 1.0, false, -1, 5);
+			fail("should not accept a negative offset");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void test51() {
+		Planet a = withFlag("A", 0), b = withFlag("B", 3), c = withFlag("C", 3), d = withFlag("D", 1);
+		ii.addAll(List.of(a, b, c, d));
+		List<Planet> results = new ArrayList<>();
+		ii.doAll((p) -> results.add(p), 1, Integer.MAX_VALUE, true, 1, 2);
+		assertEquals(List.of(b, d), results);
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.uwm.cs351.DoublePlanetIndex;
+import edu.uwm.cs351.IntPlanetIndex;
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetDataReader;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+public class TestRemove extends PlanetIndexTestCase {
+
+	private static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+	private static final int FLAG_INDEX = Planet.getFieldIndex("binary_flag");
+
+	public void test0() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		assertFalse(pi.remove(n(1)));
+		pi.add(n(1));
+		assertFalse(pi.remove(new Planet("Planet 2", 1)));
+		assertFalse(pi.remove(new Planet(new Object[Planet.numFields()])));
+		assertTrue(pi.remove(new Planet("Planet 1", 1)));
+		assertEquals(0, pi.size());
+		assertFalse(pi.remove(n(1)));
+		try {
+			pi.remove(null);
+			fail("cannot remove null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		for (int i=0; i < 7; ++i) pi.add(n(i));
+		// remove the root, which has two children
+		assertTrue(pi.remove(n(3)));
+		assertEquals(6, pi.size());
+		assertEquals(4.0, pi.select(3).getDouble(MASS_INDEX));
+		assertEquals(2, pi.countInRange(2.0, 4.0));
+		assertTrue(pi.update(n(4), n(10)));
+		assertFalse(pi.update(n(4), n(11)));
+		assertEquals(6, pi.size());
+		assertEquals(10.0, pi.select(5).getDouble(MASS_INDEX));
+	}
+
+	public void test2() {
+		Random r = new Random(19);
+		for (boolean balanced : new boolean[] { true, false }) {
+			PlanetIndex<Double> pi = makeIndex(balanced);
+			List<Planet> present = new ArrayList<>();
+			for (int i=0; i < 1000; ++i) {
+				Planet p = new Planet("Planet " + r.nextInt(20), r.nextInt(50));
+				if (r.nextInt(3) == 0) {
+					assertEquals(present.remove(p), pi.remove(p));
+				} else if (!present.contains(p)) {
+					assertTrue(pi.add(p));
+					present.add(p);
+				}
+				assertEquals(present.size(), pi.size());
+			}
+			present.sort((p1, p2) -> {
+				int c = Double.compare(p1.getDouble(MASS_INDEX), p2.getDouble(MASS_INDEX));
+				return c != 0 ? c : p1.compareTo(p2);
+			});
+			assertEquals(present, inOrder(pi));
+			for (int i=0; i < present.size(); ++i) {
+				assertSame(present.get(i), pi.select(i));
+			}
+		}
+	}
+
+	public void test3() {
+		DoublePlanetIndex di = new DoublePlanetIndex((p) -> p.getDouble(MASS_INDEX));
+		for (int i=0; i < 100; ++i) di.add(n(i));
+		for (int i=0; i < 100; i += 2) assertTrue(di.remove(n(i)));
+		assertFalse(di.remove(n(0)));
+		assertEquals(50, di.size());
+		assertTrue(di.update(n(1), n(200)));
+		List<Planet> result = new ArrayList<>();
+		di.doAll((p) -> result.add(p), 150, 250, Traversal.IN_ORDER);
+		assertEquals(1, result.size());
+
+		IntPlanetIndex ii = new IntPlanetIndex((p) -> (int)p.getDouble(MASS_INDEX));
+		for (int i=0; i < 100; ++i) ii.add(n(i));
+		for (int i=99; i >= 0; i -= 3) assertTrue(ii.remove(n(i)));
+		assertEquals(66, ii.size());
+		assertFalse(ii.update(n(99), n(300)));
+	}
+
+	public void test4() {
+		String csv = "Kepler-1 b,0,0.5\nKepler-2 b,1,1.5\nKepler-3 b,1,2.5\n";
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(csv));
+		PlanetIndex<String> names = reader.getStringPlanetIndex(NAME_INDEX);
+		PlanetIndex<Double> mass = reader.getDoublePlanetIndex(MASS_INDEX);
+		IntPlanetIndex flags = reader.getIntIndex(FLAG_INDEX);
+		Planet old = inOrder(names).get(1);
+		Object[] data = new Object[Planet.numFields()];
+		for (int i=0; i < data.length; ++i) data[i] = old.getField(i);
+		data[MASS_INDEX] = 9.5;
+		data[FLAG_INDEX] = 2;
+		Planet revised = new Planet(data);
+		assertTrue(reader.update(old, revised));
+		assertFalse(reader.update(old, revised));
+		assertEquals(3, names.size());
+		assertSame(revised, inOrder(names).get(1));
+		assertSame(revised, inOrder(mass).get(2));
+		List<Planet> flagged = new ArrayList<>();
+		flags.doAll((p) -> flagged.add(p), 2, 2, Traversal.IN_ORDER);
+		assertEquals(List.of(revised), flagged);
+		// an index built afterwards agrees
+		assertEquals(inOrder(reader.createDoublePlanetIndex(MASS_INDEX)), inOrder(mass));
+		assertTrue(reader.remove(revised));
+		assertEquals(2, mass.size());
+		assertEquals(2, flags.size());
+	}
+
+	public void test5() {
+		// an update whose replacement cannot be added changes nothing
+		PlanetIndex<Double> pi = makeIndex(true);
+		Planet x = n(1), y = n(2);
+		pi.add(x);
+		pi.add(y);
+		assertFalse(pi.update(x, new Planet(new Object[Planet.numFields()])));
+		assertFalse(pi.update(x, new Planet("Planet 2", 2)));
+		assertEquals(2, pi.size());
+		assertEquals(List.of(x, y), inOrder(pi));
+
+		DoublePlanetIndex di = new DoublePlanetIndex((p) -> p.getDouble(MASS_INDEX));
+		di.add(x);
+		di.add(y);
+		assertFalse(di.update(x, new Planet(new Object[Planet.numFields()])));
+		assertFalse(di.update(x, y));
+		assertEquals(2, di.size());
+
+		IntPlanetIndex ii = new IntPlanetIndex((p) -> p == y ? IntPlanetIndex.MISSING : (int)p.getDouble(MASS_INDEX));
+		ii.add(x);
+		ii.add(n(3));
+		assertFalse(ii.update(x, y));
+		assertFalse(ii.update(x, n(3)));
+		assertEquals(2, ii.size());
+	}
+
+	public void test6() {
+		String csv = "Kepler-1 b,0,0.5\nKepler-2 b,1,1.5\n";
+		PlanetDataReader reader = new PlanetDataReader(new StringReader(csv));
+		PlanetIndex<String> names = reader.getStringPlanetIndex(NAME_INDEX);
+		PlanetIndex<Double> mass = reader.getDoublePlanetIndex(MASS_INDEX);
+		List<Planet> before = inOrder(names);
+		assertFalse(reader.update(before.get(0), before.get(1)));
+		assertFalse(reader.update(before.get(0), new Planet(new Object[Planet.numFields()])));
+		assertEquals(before, inOrder(names));
+		assertEquals(2, mass.size());
+	}
+}
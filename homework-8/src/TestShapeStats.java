@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Shape;
+import edu.uwm.cs351.PlanetIndex.Validation;
+
+public class TestShapeStats extends PlanetIndexTestCase {
+
+	public void test0() {
+		Shape shape = makeIndex(false).shapeStats();
+		assertEquals(0, shape.getSize());
+		assertEquals(0, shape.getHeight());
+		assertEquals(-1, shape.getMaxDepth());
+		assertEquals(0.0, shape.getAverageDepth());
+		assertEquals(0, shape.getDepthHistogram().length);
+		assertTrue(shape.getKeyCardinalities().isEmpty());
+		assertEquals(1.0, shape.getImbalance());
+	}
+
+	public void test1() {
+		PlanetIndex<Double> pi = makeIndex(false);
+		pi.addAll(Arrays.asList(n(1), n(2), n(3), n(4), n(5), n(6), n(7)));
+		Shape shape = pi.shapeStats();
+		assertEquals(3, shape.getHeight());
+		assertEquals(2, shape.getMaxDepth());
+		assertTrue(Arrays.equals(new int[] {1, 2, 4}, shape.getDepthHistogram()));
+		assertEquals(10.0 / 7, shape.getAverageDepth(), 1e-9);
+		assertEquals(1.0, shape.getImbalance());
+		assertEquals(Map.of(1, 7), shape.getKeyCardinalities());
+
+		pi = makeIndex(false);
+		for (int i=0; i < 100; ++i) pi.add(n(i));
+		shape = pi.shapeStats();
+		assertEquals(100, shape.getHeight());
+		assertEquals(49.5, shape.getAverageDepth(), 1e-9);
+		assertEquals(100.0 / 7, shape.getImbalance(), 1e-9);
+		pi.rebuild();
+		assertEquals(7, pi.shapeStats().getHeight());
+		assertEquals(100, pi.size());
+		assertEquals(50.0, pi.select(50).getDouble(MASS_INDEX));
+	}
+
+	public void test2() {
+		PlanetIndex<Double> pi = makeIndex(true);
+		pi.add(new Planet("A", 1));
+		pi.add(new Planet("B", 1));
+		pi.add(new Planet("C", 1));
+		pi.add(new Planet("A", 2));
+		pi.add(new Planet("A", 3));
+		pi.add(new Planet("B", 3));
+		assertEquals(Map.of(1, 1, 2, 1, 3, 1), pi.shapeStats().getKeyCardinalities());
+	}
+
+	public void test3() {
+		PlanetIndex<Double> pi = makeIndex(false);
+		assertEquals(0.0, pi.getRebuildFactor());
+		try {
+			pi.setRebuildFactor(1.0);
+			fail("factor must be greater than 1");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		pi.setRebuildFactor(2);
+		assertEquals(2.0, pi.getRebuildFactor());
+		pi.setValidation(Validation.INCREMENTAL);
+		for (int i=0; i < 10_000; ++i) pi.add(n(i));
+		Shape shape = pi.shapeStats();
+		assertEquals(10_000, shape.getSize());
+		assertTrue("height " + shape.getHeight(), shape.getHeight() <= 2 * 14 + 1);
+		pi.setValidation(Validation.FULL);
+		assertTrue(pi.wellFormed());
+		List<Planet> all = inOrder(pi);
+		for (int i=0; i < 10_000; ++i) {
+			assertEquals((double)i, all.get(i).getDouble(MASS_INDEX));
+		}
+		assertEquals(1234.0, pi.select(1234).getDouble(MASS_INDEX));
+	}
+
+	public void test4() {
+		Random r = new Random(25);
+		PlanetIndex<Double> pi = makeIndex(false);
+		pi.setRebuildFactor(1.5);
+		List<Planet> present = new ArrayList<>();
+		for (int i=0; i < 1000; ++i) {
+			Planet p = new Planet("Planet " + r.nextInt(20), r.nextInt(100));
+			if (r.nextInt(4) == 0) {
+				assertEquals(present.remove(p), pi.remove(p));
+			} else if (!present.contains(p)) {
+				assertTrue(pi.add(p));
+				present.add(p);
+			}
+		}
+		assertEquals(present.size(), pi.size());
+		for (Planet p : present) assertTrue(pi.remove(p));
+		assertEquals(0, pi.size());
+	}
+}
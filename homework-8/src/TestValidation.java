@@ -0,0 +1,107 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uwm.cs351.Planet;
+import edu.uwm.cs351.PlanetIndex;
+import edu.uwm.cs351.PlanetIndex.Validation;
+import junit.framework.TestCase;
+
+public class TestValidation extends TestCase {
+
+	private static final int MASS_INDEX = Planet.getFieldIndex("mass");
+
+	private Map<Planet,Double> revised; // masses that have been changed behind the index's back
+	private PlanetIndex<Double> pi;
+
+	private static boolean assertionsEnabled() {
+		boolean enabled = false;
+		assert enabled = true;
+		return enabled;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		revised = new HashMap<>();
+		pi = new PlanetIndex<>((p) -> revised.getOrDefault(p, (Double)p.getField(MASS_INDEX)), true);
+	}
+
+	protected static Planet n(int i) {
+		return new Planet("Planet " + i, i);
+	}
+
+	/**
+	 * Add planets and then change the key of one of them,
+	 * which makes the index badly formed.
+	 */
+	private void corrupt() {
+		for (int i=0; i < 100; ++i) pi.add(n(i));
+		revised.put(n(50), 1000.0);
+	}
+
+	private boolean fails(Runnable r) {
+		try {
+			r.run();
+			return false;
+		} catch (AssertionError ex) {
+			return true;
+		}
+	}
+
+	public void test0() {
+		assertSame(Validation.FULL, pi.getValidation());
+		try {
+			pi.setValidation(null);
+			fail("mode must not be null");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+		try {
+			pi.setValidation(Validation.SAMPLED, 0);
+			fail("period must be positive");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void test1() {
+		if (!assertionsEnabled()) return;
+		corrupt();
+		assertTrue(fails(() -> pi.size()));
+		pi.setValidation(Validation.OFF);
+		assertFalse(fails(() -> pi.size()));
+		assertFalse(fails(() -> pi.add(n(1000))));
+	}
+
+	public void test2() {
+		if (!assertionsEnabled()) return;
+		corrupt();
+		pi.setValidation(Validation.SAMPLED, 3);
+		assertFalse(fails(() -> pi.size()));
+		assertFalse(fails(() -> pi.size()));
+		assertTrue(fails(() -> pi.size()));
+		assertFalse(fails(() -> pi.size()));
+	}
+
+	public void test3() {
+		if (!assertionsEnabled()) return;
+		corrupt();
+		pi.setValidation(Validation.INCREMENTAL);
+		// the whole tree is not checked
+		assertFalse(fails(() -> pi.size()));
+		assertFalse(fails(() -> pi.add(n(1000))));
+		// but the path to a new planet is
+		assertTrue(fails(() -> pi.add(new Planet("Other", 50))));
+	}
+
+	public void test4() {
+		// incremental checking keeps add logarithmic, even with assertions
+		pi.setValidation(Validation.INCREMENTAL);
+		for (int i=0; i < 100_000; ++i) pi.add(n(i));
+		assertEquals(100_000, pi.size());
+		pi.setValidation(Validation.FULL);
+		assertTrue(pi.wellFormed());
+		assertTrue(pi.remove(n(500)));
+		assertEquals(99_999, pi.size());
+	}
+}
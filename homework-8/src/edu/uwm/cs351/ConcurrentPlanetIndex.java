@@ -0,0 +1,110 @@
+package edu.uwm.cs351;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+/**
+ * An index of planets using some comparable key, which may be
+ * read by many threads while others add to it.
+ * The index holds the current version of a {@link PersistentPlanetIndex},
+ * whose nodes are never changed once they are shared.  Adding a
+ * planet copies the nodes on the path to where it goes (and any
+ * that are rotated), and then publishes the new version.
+ * Readers therefore never block or see a tree in the middle
+ * of being changed: each {@link #doAll} traverses the tree as it
+ * was when the traversal started, even if planets are added meanwhile,
+ * and {@link #snapshot()} keeps a version for as long as it is needed.
+ * Writers are serialized with a lock.
+ * @param <K> type of key
+ */
+public class ConcurrentPlanetIndex<K extends Comparable<K>> {
+
+	private volatile PersistentPlanetIndex<K> current;
+	private final Object writeLock = new Object();
+
+	/**
+	 * Create an empty index of planets.
+	 * @param ex key extractor to use, must not be null
+	 */
+	public ConcurrentPlanetIndex(Function<Planet,K> ex) {
+		current = new PersistentPlanetIndex<>(ex);
+	}
+
+	/**
+	 * Return number of planets in index
+	 * @return size of index
+	 */
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Return the current version of the index, which will not
+	 * change even as planets are added to this index.
+	 * This takes constant time, since nothing is copied.
+	 * @return current version of the index
+	 */
+	public PersistentPlanetIndex<K> snapshot() {
+		return current;
+	}
+
+	/**
+	 * Add a planet to the index, returning true unless it was already there
+	 * or unless the planet's key is null.
+	 * Concurrent traversals are not affected.
+	 * @param p planet to add, must not be null
+	 * @return whether planet needed to be added.
+	 */
+	public boolean add(Planet p) {
+		synchronized (writeLock) {
+			PersistentPlanetIndex<K> next = current.add(p);
+			if (next == current) return false;
+			current = next;
+			return true;
+		}
+	}
+
+	/**
+	 * Add all planets from this collection.
+	 * The planets become visible to readers all at once.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
+	 * @param coll collection to add planets, must not be null.
+	 */
+	public void addAll(Collection<Planet> coll) {
+		synchronized (writeLock) {
+			current = current.addAll(coll);
+		}
+	}
+
+	/**
+	 * Add all planets from the parent to this index.
+	 * @param index existing index of planets, must not be null
+	 */
+	public void addAll(PlanetIndex<?> index) {
+		synchronized (writeLock) {
+			current = current.addAll(index);
+		}
+	}
+
+	/**
+	 * Find all the planets in the given range in the index.
+	 * The consumer function is called on each in turn.
+	 * If the traversal is {@link Traversal#IN_ORDER}, then the
+	 * planets will be handled in order, and if it is
+	 * {@link Traversal#REVERSE_ORDER}, in reverse order.  Otherwise, the order
+	 * depends on internal data structure order, which can be unpredictable.
+	 * Planets added after the traversal starts (even by the
+	 * consumer function) are not seen by it.
+	 * @param f function to call on each planet in range, must not be null
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @param t traversal order, must not be null
+	 */
+	public void doAll(Consumer<Planet> f, K lo, K hi, Traversal t) {
+		current.doAll(f, lo, hi, t);
+	}
+}
@@ -0,0 +1,125 @@
+package edu.uwm.cs351;
+
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+/**
+ * An index of planets using a double key.
+ * This is a version of {@link PlanetIndex} specialized so that
+ * keys are stored and compared as primitive doubles, without boxing.
+ * The index is sorted using a balanced (AVL) binary search tree.
+ * A planet whose key is NaN is taken to be missing the key,
+ * and is not added, just as {@link PlanetIndex} does not add planets
+ * with null keys.
+ */
+public class DoublePlanetIndex extends PrimitivePlanetIndex {
+
+	private static class DoubleNode extends Node {
+		double key;
+
+		DoubleNode(Planet p, double k) { super(p); key = k; }
+	}
+
+	private final ToDoubleFunction<Planet> keyExtractor;
+
+	/**
+	 * Create an empty index of planets.
+	 * @param ex key extractor to use, must not be null
+	 */
+	public DoublePlanetIndex(ToDoubleFunction<Planet> ex) {
+		if (ex == null) throw new NullPointerException("key extractor must not be null");
+		keyExtractor = ex;
+	}
+
+	@Override
+	Node newNode(Planet p) {
+		double key = keyExtractor.applyAsDouble(p);
+		return Double.isNaN(key) ? null : new DoubleNode(p, key);
+	}
+
+	@Override
+	int compareKeys(Node n1, Node n2) {
+		return Double.compare(((DoubleNode)n1).key, ((DoubleNode)n2).key);
+	}
+
+	@Override
+	void copyKey(Node from, Node to) {
+		((DoubleNode)to).key = ((DoubleNode)from).key;
+	}
+
+	@Override
+	boolean okKey(Node r) {
+		double key = keyExtractor.applyAsDouble(r.data);
+		double cached = ((DoubleNode)r).key;
+		if (Double.compare(key, cached) != 0) return report("Cached key " + cached + " of " + r.data + " is not " + key);
+		if (Double.isNaN(key)) return report("Key of " + r.data + " is missing");
+		return true;
+	}
+
+	private static Node bound(double key) {
+		return new DoubleNode(null, key);
+	}
+
+	/**
+	 * Find all the planets in the given range in the index.
+	 * The consumer function is called on each in turn.
+	 * If the traversal is {@link Traversal#IN_ORDER}, then the
+	 * planets will be handled in order, and if it is
+	 * {@link Traversal#REVERSE_ORDER}, in reverse order.  Otherwise, the order
+	 * depends on internal data structure order, which can be unpredictable.
+	 * Use infinite bounds for a range that is unbounded on one side.
+	 * @param f function to call on each planet in range, must not be null
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @param t traversal order, must not be null
+	 */
+	public void doAll(Consumer<Planet> f, double lo, double hi, Traversal t) {
+		doAll(f, bound(lo), bound(hi), t);
+	}
+
+	/**
+	 * Find some of the planets in the given range in the index, in order.
+	 * The planets in range are taken in increasing order (or decreasing,
+	 * if descending), the first few are skipped, and the consumer function
+	 * is called on each of the next few in turn.  For example, the ten
+	 * planets with the largest keys at least k are found with
+	 * <code>doAll(f, k, Double.POSITIVE_INFINITY, true, 0, 10)</code>.
+	 * The planets skipped are not visited at all, and the traversal
+	 * stops as soon as the limit is reached, so this takes time
+	 * O(log n) plus the limit.
+	 * @param f function to call on each planet found, must not be null
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @param descending whether to go from the largest keys down
+	 * @param offset number of planets in range to skip, must not be negative
+	 * @param limit maximum number of planets to handle, must not be negative
+	 */
+	public void doAll(Consumer<Planet> f, double lo, double hi, boolean descending, int offset, int limit) {
+		doAll(f, bound(lo), bound(hi), descending, offset, limit);
+	}
+
+	/**
+	 * Return the number of planets with keys less than the given key,
+	 * which is the position of the first planet with the key,
+	 * if there is one.  This takes time O(log n).
+	 * @param key key to compare with
+	 * @return number of planets with smaller keys
+	 */
+	public int rank(double key) {
+		return rank(bound(key));
+	}
+
+	/**
+	 * Return the number of planets in the given range,
+	 * which is the number that {@link #doAll} would visit,
+	 * but without visiting them.  This takes time O(log n).
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @return number of planets in range
+	 */
+	public int countInRange(double lo, double hi) {
+		return countInRange(bound(lo), bound(hi));
+	}
+}
@@ -0,0 +1,132 @@
+package edu.uwm.cs351;
+
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
+
+/**
+ * An index of planets using an int key.
+ * This is a version of {@link PlanetIndex} specialized so that
+ * keys are stored and compared as primitive ints, without boxing.
+ * The index is sorted using a balanced (AVL) binary search tree.
+ * A planet whose key is {@link #MISSING} is taken to be missing the key,
+ * and is not added, just as {@link PlanetIndex} does not add planets
+ * with null keys.
+ */
+public class IntPlanetIndex extends PrimitivePlanetIndex {
+
+	/**
+	 * The key value that a key extractor returns for a planet
+	 * that does not have the key.
+	 */
+	public static final int MISSING = Integer.MIN_VALUE;
+
+	private static class IntNode extends Node {
+		int key;
+
+		IntNode(Planet p, int k) { super(p); key = k; }
+	}
+
+	private final ToIntFunction<Planet> keyExtractor;
+
+	/**
+	 * Create an empty index of planets.
+	 * @param ex key extractor to use, must not be null
+	 */
+	public IntPlanetIndex(ToIntFunction<Planet> ex) {
+		if (ex == null) throw new NullPointerException("key extractor must not be null");
+		keyExtractor = ex;
+	}
+
+	@Override
+	Node newNode(Planet p) {
+		int key = keyExtractor.applyAsInt(p);
+		return key == MISSING ? null : new IntNode(p, key);
+	}
+
+	@Override
+	int compareKeys(Node n1, Node n2) {
+		return Integer.compare(((IntNode)n1).key, ((IntNode)n2).key);
+	}
+
+	@Override
+	void copyKey(Node from, Node to) {
+		((IntNode)to).key = ((IntNode)from).key;
+	}
+
+	@Override
+	boolean okKey(Node r) {
+		int key = keyExtractor.applyAsInt(r.data);
+		int cached = ((IntNode)r).key;
+		if (key != cached) return report("Cached key " + cached + " of " + r.data + " is not " + key);
+		if (key == MISSING) return report("Key of " + r.data + " is missing");
+		return true;
+	}
+
+	private static Node bound(int key) {
+		return new IntNode(null, key);
+	}
+
+	/**
+	 * Find all the planets in the given range in the index.
+	 * The consumer function is called on each in turn.
+	 * If the traversal is {@link Traversal#IN_ORDER}, then the
+	 * planets will be handled in order, and if it is
+	 * {@link Traversal#REVERSE_ORDER}, in reverse order.  Otherwise, the order
+	 * depends on internal data structure order, which can be unpredictable.
+	 * Use {@link Integer#MIN_VALUE} or {@link Integer#MAX_VALUE} for a range
+	 * that is unbounded on one side.
+	 * @param f function to call on each planet in range, must not be null
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @param t traversal order, must not be null
+	 */
+	public void doAll(Consumer<Planet> f, int lo, int hi, Traversal t) {
+		doAll(f, bound(lo), bound(hi), t);
+	}
+
+	/**
+	 * Find some of the planets in the given range in the index, in order.
+	 * The planets in range are taken in increasing order (or decreasing,
+	 * if descending), the first few are skipped, and the consumer function
+	 * is called on each of the next few in turn.  For example, the ten
+	 * planets with the largest keys at least k are found with
+	 * <code>doAll(f, k, Integer.MAX_VALUE, true, 0, 10)</code>.
+	 * The planets skipped are not visited at all, and the traversal
+	 * stops as soon as the limit is reached, so this takes time
+	 * O(log n) plus the limit.
+	 * @param f function to call on each planet found, must not be null
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @param descending whether to go from the largest keys down
+	 * @param offset number of planets in range to skip, must not be negative
+	 * @param limit maximum number of planets to handle, must not be negative
+	 */
+	public void doAll(Consumer<Planet> f, int lo, int hi, boolean descending, int offset, int limit) {
+		doAll(f, bound(lo), bound(hi), descending, offset, limit);
+	}
+
+	/**
+	 * Return the number of planets with keys less than the given key,
+	 * which is the position of the first planet with the key,
+	 * if there is one.  This takes time O(log n).
+	 * @param key key to compare with
+	 * @return number of planets with smaller keys
+	 */
+	public int rank(int key) {
+		return rank(bound(key));
+	}
+
+	/**
+	 * Return the number of planets in the given range,
+	 * which is the number that {@link #doAll} would visit,
+	 * but without visiting them.  This takes time O(log n).
+	 * @param lo inclusive lower bound
+	 * @param hi inclusive upper bound
+	 * @return number of planets in range
+	 */
+	public int countInRange(int lo, int hi) {
+		return countInRange(bound(lo), bound(hi));
+	}
+}
@@ -0,0 +1,532 @@
+package edu.uwm.cs351;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetIndex.Validation;
+
+/**
+ * An immutable index of planets using some comparable key.
+ * Adding planets does not change an index, but returns a new version
+ * of it, which shares all the nodes that did not need to change with
+ * the old version.  So an old version stays valid, and can be kept
+ * as a snapshot and read by any number of threads without locking,
+ * while later versions are created.
+ * The index is sorted using a balanced (AVL) binary search tree,
+ * so each new version copies only O(log n) nodes.
+ * @param <K> type of key
+ */
+public class PersistentPlanetIndex<K extends Comparable<K>> {
+
+	private static final class Node {
+		final Planet data;
+		final Object key; // cached key of data
+		final Node left, right;
+		final int height;
+
+		Node(Planet p, Object k, Node l, Node r) {
+			data = p;
+			key = k;
+			left = l;
+			right = r;
+			height = 1 + Math.max(height(l), height(r));
+		}
+	}
+
+	// A new version checks only the path of the planet added, by default,
+	// since checking the whole tree would make every version cost O(n).
+	private static final Validation DEFAULT_VALIDATION = PlanetIndex.defaultValidation(Validation.INCREMENTAL);
+
+	private final Function<Planet,K> keyExtractor;
+	private final Node root;
+	private final int size;
+	private final Validation validation;
+	private final int samplePeriod;
+	private final int operations; // versions since the validation mode was set
+
+	private static boolean doReport = true;
+
+	@SuppressWarnings("unchecked")
+	private K keyOf(Node r) {
+		return (K)r.key;
+	}
+
+	private boolean report(String error) {
+		if (doReport) System.out.println("Invariant error: " + error);
+		return false;
+	}
+
+	/**
+	 * Count the number of nodes in the subtree rooted here and
+	 * return the total number, or -1 if we find ourselves deeper
+	 * than the number of nodes supposedly in the tree.
+	 * @param r root of subtree
+	 * @param d depth of this subtree (0 = root)
+	 * @param size number of nodes in the whole tree
+	 * @return number of nodes in the subtree, or -1
+	 */
+	private static int countNodes(Node r, int d, int size) {
+		if (r == null) return 0;
+		if (d >= size) return -1;
+		int n1 = countNodes(r.left, d+1, size);
+		int n2 = countNodes(r.right, d+1, size);
+		if (n1 == -1 || n2 == -1) return -1;
+		return 1 + n1 + n2;
+	}
+
+	/**
+	 * Check a subtree to see if items are in the correct order.
+	 * @param r subtree
+	 * @param lo inclusive lower bound of keys, or null if no lower bound
+	 * @param hi inclusive upper bound of keys, or null if no upper bound
+	 * @param p1 exclusive lower bound for planets with the same key, or null if no bound
+	 * @param p2 exclusive upper bound for planets with the same key, or null if no bound
+	 * @return true if all keys in tree inside the range, and subtrees also good
+	 */
+	private boolean okTree(Node r, K lo, K hi, Planet p1, Planet p2) {
+		if (r == null) return true;
+		Planet p = r.data;
+		if (p == null) return report("found null planet in tree");
+		K key = keyExtractor.apply(p);
+		if (key == null) return report("Key of " + p + " is null");
+		if (!key.equals(r.key)) return report("Cached key " + r.key + " of " + p + " is not " + key);
+		if (lo != null && lo.compareTo(key) > 0) return report("Found " + p + " with " + key + " < " + lo);
+		if (hi != null && hi.compareTo(key) < 0) return report("Found " + p + " with " + key + " > " + hi);
+		if (p1 != null && keyExtractor.apply(p1).equals(key) && p1.compareTo(p) >= 0) {
+			return report("Found " + p + " <= " + p1);
+		}
+		if (p2 != null && keyExtractor.apply(p2).equals(key) && p2.compareTo(p) <= 0) {
+			return report("Found " + p + " >= " + p2);
+		}
+		return okTree(r.left, lo, key, p1, p) && okTree(r.right, key, hi, p, p2);
+	}
+
+	/**
+	 * Check that the heights recorded in a subtree are correct and balanced.
+	 * @param r subtree
+	 * @return height of the subtree, or -1 if a problem was found
+	 */
+	private int checkHeights(Node r) {
+		if (r == null) return 0;
+		int hl = checkHeights(r.left);
+		if (hl == -1) return -1;
+		int hr = checkHeights(r.right);
+		if (hr == -1) return -1;
+		if (hl - hr > 1 || hr - hl > 1) {
+			report("Found " + r.data + " with unbalanced subtrees " + hl + " and " + hr);
+			return -1;
+		}
+		int h = 1 + Math.max(hl, hr);
+		if (r.height != h) {
+			report("Found " + r.data + " with height " + r.height + " instead of " + h);
+			return -1;
+		}
+		return h;
+	}
+
+	private boolean wellFormed() {
+		if (!okTree(root, null, null, null, null)) return report("tree is not structured correctly");
+		if (countNodes(root, 0, size) != size) return report("the number of nodes does not equal the size");
+		if (checkHeights(root) == -1) return report("tree is not balanced");
+		return true;
+	}
+
+	/**
+	 * Check the invariant of a new version as much as the validation
+	 * mode asks for.  In INCREMENTAL mode, the path of each planet
+	 * added is checked separately, by {@link #validatePath(Planet)}.
+	 * @return false if a problem was found
+	 */
+	private boolean validate() {
+		switch (validation) {
+		case OFF: return true;
+		case INCREMENTAL: return true;
+		case SAMPLED:
+			if (operations % samplePeriod != 0) return true;
+			break;
+		case FULL: break;
+		}
+		return wellFormed();
+	}
+
+	/**
+	 * Check the nodes on the path to a planet, and their children,
+	 * if the validation mode is INCREMENTAL.  All the nodes that a new
+	 * version created for the planet are on this path or next to it.
+	 * @param p planet that was added, not null
+	 * @return false if a problem was found
+	 */
+	private boolean validatePath(Planet p) {
+		if (validation != Validation.INCREMENTAL) return true;
+		K key = keyExtractor.apply(p);
+		if (key == null) return true;
+		Node r = root;
+		while (r != null) {
+			if (!okNode(r)) return false;
+			if (r.left != null && !okNode(r.left)) return false;
+			if (r.right != null && !okNode(r.right)) return false;
+			int c = key.compareTo(keyOf(r));
+			if (c == 0) c = p.compareTo(r.data);
+			if (c == 0) return true;
+			r = c < 0 ? r.left : r.right;
+		}
+		return report(p + " is not in the new version");
+	}
+
+	/**
+	 * Check the paths to all the planets added, if the validation
+	 * mode is INCREMENTAL.
+	 * @param coll planets that were added, not null
+	 * @return false if a problem was found
+	 */
+	private boolean validatePaths(Collection<Planet> coll) {
+		if (validation != Validation.INCREMENTAL) return true;
+		for (Planet p : coll) {
+			if (!validatePath(p)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check a node against its children only: its key, the order
+	 * of its children, and its height.
+	 * @param r node to check, not null
+	 * @return false if a problem was found
+	 */
+	private boolean okNode(Node r) {
+		if (r.data == null) return report("found null planet in tree");
+		K key = keyExtractor.apply(r.data);
+		if (key == null) return report("Key of " + r.data + " is null");
+		if (!key.equals(r.key)) return report("Cached key " + r.key + " of " + r.data + " is not " + key);
+		if (r.left != null && compare(r.left, r) >= 0) return report("Found " + r.left.data + " left of " + r.data);
+		if (r.right != null && compare(r, r.right) >= 0) return report("Found " + r.right.data + " right of " + r.data);
+		int hl = height(r.left), hr = height(r.right);
+		if (hl - hr > 1 || hr - hl > 1) return report("Found " + r.data + " with unbalanced subtrees " + hl + " and " + hr);
+		if (r.height != 1 + Math.max(hl, hr)) return report("Found " + r.data + " with height " + r.height);
+		return true;
+	}
+
+	/**
+	 * Create an empty index of planets.
+	 * @param ex key extractor to use, must not be null
+	 */
+	public PersistentPlanetIndex(Function<Planet,K> ex) {
+		this(ex, null, 0, DEFAULT_VALIDATION, PlanetIndex.DEFAULT_SAMPLE_PERIOD, 0);
+	}
+
+	private PersistentPlanetIndex(Function<Planet,K> ex, Node r, int s, Validation mode, int period, int ops) {
+		if (ex == null) throw new NullPointerException("key extractor must not be null");
+		keyExtractor = ex;
+		root = r;
+		size = s;
+		validation = mode;
+		samplePeriod = period;
+		operations = ops;
+		assert validate() : "tree badly formed at end of constructor";
+	}
+
+	/**
+	 * Return a new version of this index with the given tree.
+	 * @param r root of the tree of the new version
+	 * @param s number of planets in the tree
+	 * @return new version, with the same validation mode
+	 */
+	private PersistentPlanetIndex<K> version(Node r, int s) {
+		return new PersistentPlanetIndex<>(keyExtractor, r, s, validation, samplePeriod, operations + 1);
+	}
+
+	/**
+	 * Return a version of this index, with the same planets, in which
+	 * each later version checks as much of the invariant as the mode
+	 * says, when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 * @return index with the given validation mode
+	 */
+	public PersistentPlanetIndex<K> withValidation(Validation mode) {
+		return withValidation(mode, PlanetIndex.DEFAULT_SAMPLE_PERIOD);
+	}
+
+	/**
+	 * Return a version of this index, with the same planets, in which
+	 * each later version checks as much of the invariant as the mode
+	 * says, when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 * @param period number of versions per full check, in SAMPLED mode
+	 * @return index with the given validation mode
+	 */
+	public PersistentPlanetIndex<K> withValidation(Validation mode, int period) {
+		if (mode == null) throw new NullPointerException("validation mode must not be null");
+		if (period < 1) throw new IllegalArgumentException("period must be positive: " + period);
+		return new PersistentPlanetIndex<>(keyExtractor, root, size, mode, period, 0);
+	}
+
+	/**
+	 * Return how much of the invariant is checked for each new version.
+	 * @return validation mode
+	 */
+	public Validation getValidation() {
+		return validation;
+	}
+
+	/**
+	 * Return number of planets in index
+	 * @return size of index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return a version of this index with a planet added.
+	 * If the planet is already there or its key is null,
+	 * this index is returned unchanged.
+	 * @param p planet to add, must not be null
+	 * @return index with the planet, sharing unchanged nodes with this index
+	 */
+	public PersistentPlanetIndex<K> add(Planet p) {
+		if (p == null) throw new NullPointerException("cannot add null");
+		K key = keyExtractor.apply(p);
+		if (key == null) return this;
+		Node r = insert(root, p, key);
+		if (r == root) return this;
+		PersistentPlanetIndex<K> result = version(r, size + 1);
+		assert result.validatePath(p) : "tree badly formed along the path of add";
+		return result;
+	}
+
+	/**
+	 * Return a copy of a subtree with a planet added, sharing all
+	 * the nodes that do not need to change.
+	 * The recursion is bounded by the height of the tree, which is O(log n).
+	 * @param r subtree, may be null
+	 * @param p planet to add, not null
+	 * @param key key of the planet, not null
+	 * @return new subtree, or r itself if the planet is already there
+	 */
+	private Node insert(Node r, Planet p, K key) {
+		if (r == null) return new Node(p, key, null, null);
+		int c = key.compareTo(keyOf(r));
+		if (c == 0) c = p.compareTo(r.data);
+		if (c == 0) return r;
+		if (c < 0) {
+			Node l = insert(r.left, p, key);
+			if (l == r.left) return r;
+			return balance(r.data, r.key, l, r.right);
+		}
+		Node n = insert(r.right, p, key);
+		if (n == r.right) return r;
+		return balance(r.data, r.key, r.left, n);
+	}
+
+	private static int height(Node r) {
+		return r == null ? 0 : r.height;
+	}
+
+	/**
+	 * Create a node for a planet with subtrees that are balanced but may
+	 * differ in height by two, rotating (with new nodes) as needed.
+	 * @param p planet for node
+	 * @param k key of the planet
+	 * @param l left subtree
+	 * @param r right subtree
+	 * @return root of the new balanced subtree
+	 */
+	private static Node balance(Planet p, Object k, Node l, Node r) {
+		int hl = height(l), hr = height(r);
+		if (hl > hr + 1) {
+			if (height(l.left) >= height(l.right)) {
+				return new Node(l.data, l.key, l.left, new Node(p, k, l.right, r));
+			}
+			Node lr = l.right;
+			return new Node(lr.data, lr.key, new Node(l.data, l.key, l.left, lr.left), new Node(p, k, lr.right, r));
+		}
+		if (hr > hl + 1) {
+			if (height(r.right) >= height(r.left)) {
+				return new Node(r.data, r.key, new Node(p, k, l, r.left), r.right);
+			}
+			Node rl = r.left;
+			return new Node(rl.data, rl.key, new Node(p, k, l, rl.left), new Node(r.data, r.key, rl.right, r.right));
+		}
+		return new Node(p, k, l, r);
+	}
+
+	/**
+	 * Return a version of this index with all the planets from this collection.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
+	 * @param coll collection to add planets, must not be null.
+	 * @return index with the planets, sharing unchanged nodes with this index
+	 */
+	public PersistentPlanetIndex<K> addAll(Collection<Planet> coll) {
+		if (size == 0) return build(coll);
+		Node r = root;
+		int n = size;
+		for (Planet p : coll) {
+			if (p == null) throw new NullPointerException("cannot add null");
+			K key = keyExtractor.apply(p);
+			if (key == null) continue;
+			Node added = insert(r, p, key);
+			if (added != r) ++n;
+			r = added;
+		}
+		if (r == root) return this;
+		PersistentPlanetIndex<K> result = version(r, n);
+		assert result.validatePaths(coll) : "tree badly formed along the paths of addAll";
+		return result;
+	}
+
+	/**
+	 * Return a version of this index with all the planets from the parent.
+	 * @param index existing index of planets, must not be null
+	 * @return index with the planets, sharing unchanged nodes with this index
+	 */
+	public PersistentPlanetIndex<K> addAll(PlanetIndex<?> index) {
+		List<Planet> planets = new ArrayList<>(index.size());
+		index.doAll((p) -> planets.add(p), null, null, Traversal.IN_ORDER);
+		return addAll(planets);
+	}
+
+	private int compare(Node n1, Node n2) {
+		int c = keyOf(n1).compareTo(keyOf(n2));
+		if (c == 0) c = n1.data.compareTo(n2.data);
+		return c;
+	}
+
+	/**
+	 * Build an index from a collection of planets,
+	 * by sorting them and linking them into a perfectly balanced tree.
+	 * Planets with null keys and duplicates are skipped, as by add.
+	 * @param coll planets to put in the tree, must not be null
+	 * @return the new index
+	 */
+	private PersistentPlanetIndex<K> build(Collection<Planet> coll) {
+		Node[] nodes = new Node[coll.size()];
+		int n = 0;
+		for (Planet p : coll) {
+			if (p == null) throw new NullPointerException("cannot add null");
+			K key = keyExtractor.apply(p);
+			if (key != null) nodes[n++] = new Node(p, key, null, null);
+		}
+		Arrays.sort(nodes, 0, n, this::compare);
+		int unique = 0;
+		for (int i=0; i < n; ++i) {
+			if (unique == 0 || compare(nodes[unique-1], nodes[i]) != 0) nodes[unique++] = nodes[i];
+		}
+		return version(link(nodes, 0, unique), unique);
+	}
+
+	private static Node link(Node[] nodes, int lo, int hi) {
+		if (lo >= hi) return null;
+		int mid = (lo + hi) >>> 1;
+		Node left = link(nodes, lo, mid);
+		Node right = link(nodes, mid+1, hi);
+		return new Node(nodes[mid].data, nodes[mid].key, left, right);
+	}
+
+	/**
+	 * Find all the planets in the given range in the index.
+	 * The consumer function is called on each in turn.
+	 * If the traversal is {@link Traversal#IN_ORDER}, then the
+	 * planets will be handled in order, and if it is
+	 * {@link Traversal#REVERSE_ORDER}, in reverse order.  Otherwise, the order
+	 * depends on internal data structure order, which can be unpredictable.
+	 * @param f function to call on each planet in range, must not be null
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @param t traversal order, must not be null
+	 */
+	public void doAll(Consumer<Planet> f, K lo, K hi, Traversal t) {
+		if (t == null || f == null) throw new NullPointerException("doAll requires non-null arguments");
+		Node r = root;
+		switch (t) {
+		case PRE_ORDER: doPreOrder(r, f, lo, hi); break;
+		case IN_ORDER: doInOrder(r, f, lo, hi); break;
+		case POST_ORDER: doPostOrder(r, f, lo, hi); break;
+		case REVERSE_ORDER: doReverseOrder(r, f, lo, hi); break;
+		}
+	}
+
+	private boolean inLeft(K lo, K key) {
+		return lo == null || lo.compareTo(key) <= 0;
+	}
+
+	private boolean inRight(K hi, K key) {
+		return hi == null || hi.compareTo(key) >= 0;
+	}
+
+	private void doPreOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		if (r == null) return;
+		Deque<Node> stack = new ArrayDeque<>();
+		stack.push(r);
+		while (!stack.isEmpty()) {
+			r = stack.pop();
+			K key = keyOf(r);
+			boolean inLeft = inLeft(lo, key);
+			boolean inRight = inRight(hi, key);
+			if (inLeft && inRight) f.accept(r.data);
+			if (inRight && r.right != null) stack.push(r.right);
+			if (inLeft && r.left != null) stack.push(r.left);
+		}
+	}
+
+	private void doInOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		for (;;) {
+			while (r != null) {
+				stack.push(r);
+				r = inLeft(lo, keyOf(r)) ? r.left : null;
+			}
+			if (stack.isEmpty()) return;
+			r = stack.pop();
+			K key = keyOf(r);
+			boolean inRight = inRight(hi, key);
+			if (inRight && inLeft(lo, key)) f.accept(r.data);
+			r = inRight ? r.right : null;
+		}
+	}
+
+	private void doReverseOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		for (;;) {
+			while (r != null) {
+				stack.push(r);
+				r = inRight(hi, keyOf(r)) ? r.right : null;
+			}
+			if (stack.isEmpty()) return;
+			r = stack.pop();
+			K key = keyOf(r);
+			boolean inLeft = inLeft(lo, key);
+			if (inLeft && inRight(hi, key)) f.accept(r.data);
+			r = inLeft ? r.left : null;
+		}
+	}
+
+	private void doPostOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node last = null;
+		while (r != null || !stack.isEmpty()) {
+			if (r != null) {
+				stack.push(r);
+				r = inLeft(lo, keyOf(r)) ? r.left : null;
+				continue;
+			}
+			Node top = stack.peek();
+			K key = keyOf(top);
+			boolean inRight = inRight(hi, key);
+			if (inRight && top.right != null && top.right != last) {
+				r = top.right;
+			} else {
+				stack.pop();
+				if (inRight && inLeft(lo, key)) f.accept(top.data);
+				last = top;
+			}
+		}
+	}
+}
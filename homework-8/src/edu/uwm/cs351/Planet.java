@@ -1,6 +1,7 @@
 package edu.uwm.cs351;
 
 import java.util.Arrays;
+import java.util.Objects;
 /**
  *
  */
@@ -30,7 +31,11 @@ public class Planet implements Comparable<Planet> {
 	// 22: Host star temperature [K]
 	// 23: Host star age [Gyr]
 	// 24: A list of lists the planet is on
-	private Object[] fields;
+	private Object[] fields; // null if this planet is a row of a table
+
+	// If fields is null, the data is in this row of the table
+	private final PlanetTable table;
+	private final int row;
 
 	private static final Class<?>[] TYPES = {//holds the Class values of each field, for type checking
 			String.class, Integer.class, Double.class, Double.class, Double.class,
@@ -53,6 +58,8 @@ public class Planet implements Comparable<Planet> {
 	 * @param input - array of planet values, values may be null
 	 */
 	public Planet(Object[] input) {
+		table = null;
+		row = -1;
 		fields = new Object[25];
 		for(int i=0; i<fields.length; ++i) {
 			if(input[i] == null || TYPES[i].isInstance(input[i])) //checking null first will short circuit
@@ -68,6 +75,8 @@ public class Planet implements Comparable<Planet> {
 	 * @param mass mass of planet in earth-masses.
 	 */
 	public Planet(String name, double mass) {
+		table = null;
+		row = -1;
 		Object[] data = new Object[25];
 		final int MASS_INDEX = getFieldIndex("mass");
 		final int NAME_INDEX = getFieldIndex("identifier");
@@ -79,10 +88,87 @@ public class Planet implements Comparable<Planet> {
 		this.fields = data;
 	}
 
+	/**
+	 * Create a planet that views a row of a table.
+	 * The fields are read from the table as needed.
+	 * @param t table, must not be null
+	 * @param r row in the table
+	 */
+	Planet(PlanetTable t, int r) {
+		table = t;
+		row = r;
+	}
+
+	/**
+	 * Return whether a field of this planet is missing.
+	 * @param i field index
+	 * @return whether the field is null
+	 */
+	private boolean isNull(int i) {
+		if (fields == null) return table.isNull(row, i);
+		return fields[i] == null;
+	}
+
+	/**
+	 * Return whether this planet and another have the same value for a field.
+	 * Rows of the same table are compared without boxing.
+	 * @param o other planet, not null
+	 * @param i field index
+	 * @return whether the field values are equal (or both null)
+	 */
+	private boolean sameField(Planet o, int i) {
+		if (fields == null && table == o.table) return table.sameField(row, o.row, i);
+		return Objects.equals(getField(i), o.getField(i));
+	}
+
 	@Override
 	public int compareTo(Planet o) {
-		// This should return 0 only for two planets that are equal
-		return ( this.dataString().compareTo(o.dataString()));
+		// This should return 0 only for two planets that are equal.
+		// The order is that of the dataString()s, but we avoid building them:
+		// the fields the planets share contribute the same text to both strings,
+		// so only the text where they first differ needs to be compared.
+		final int n = numFields();
+		int i = 0;
+		while (i < n && sameField(o, i)) ++i;
+		if (i == n) return 0;
+		int j1 = nextField(i), j2 = o.nextField(i);
+		if (j1 == -1) return -1; // this string ends first
+		if (j2 == -1) return 1;
+		int c;
+		if (j1 != j2) c = compareText(TYPE_NAMES[j1], TYPE_NAMES[j2]);
+		else c = compareText(getField(i).toString(), o.getField(i).toString());
+		if (c != 0) return c;
+		// one piece of text is a prefix of the other: compare everything
+		return dataString().compareTo(o.dataString());
+	}
+
+	/**
+	 * Return the index of the first non-null field at or after the given one.
+	 * @param i index to start at
+	 * @return index of the non-null field, or -1 if there are no more
+	 */
+	private int nextField(int i) {
+		while (i < numFields() && isNull(i)) ++i;
+		return i == numFields() ? -1 : i;
+	}
+
+	/**
+	 * Compare two pieces of text as they appear in the data string,
+	 * each followed by a space.  Only the characters up to and including
+	 * the space after the shorter piece are compared.
+	 * @param s1 first piece of text, not null
+	 * @param s2 second piece of text, not null
+	 * @return difference of the first differing characters, or 0
+	 * if one piece is a prefix of the other
+	 */
+	private static int compareText(String s1, String s2) {
+		int n = Math.min(s1.length(), s2.length());
+		for (int k=0; k <= n; ++k) {
+			char c1 = k < s1.length() ? s1.charAt(k) : ' ';
+			char c2 = k < s2.length() ? s2.charAt(k) : ' ';
+			if (c1 != c2) return c1 - c2;
+		}
+		return 0;
 	}
 
 	@Override
@@ -94,12 +180,12 @@ public class Planet implements Comparable<Planet> {
 	@Override
 	public int hashCode() {
 		// not used in this assignment, but still need a legal definition
-		return fields[0].hashCode();
+		return getField(0).hashCode();
 	}
 
 	@Override
 	public String toString() {
-		return "Planet(" + fields[0] + ":" + fields[2] + ")";
+		return "Planet(" + getField(0) + ":" + getField(2) + ")";
 	}
 
 	/**
@@ -110,9 +196,9 @@ public class Planet implements Comparable<Planet> {
 	 */
 	public String dataString() {
 		StringBuilder sb = new StringBuilder();
-		for(int i=0; i<fields.length; ++i) {
-			if(!(fields[i] == null)) {
-				sb.append(TYPE_NAMES[i] + " = " + fields[i] + " ");
+		for(int i=0; i<numFields(); ++i) {
+			if(!isNull(i)) {
+				sb.append(TYPE_NAMES[i] + " = " + getField(i) + " ");
 			}
 		}
 		return sb.toString();
@@ -123,9 +209,22 @@ public class Planet implements Comparable<Planet> {
 	 * @return the field at given index
 	 */
 	public Object getField(int index) {
+		if (fields == null) return table.getField(row, index);
 		return fields[index];
 	}
 
+	/**
+	 * Return the value of a double field without boxing it
+	 * if this planet is a row of a table.
+	 * @param index index of a double field
+	 * @return the value of the field, or NaN if it is missing
+	 */
+	public double getDouble(int index) {
+		if (fields == null) return table.getDouble(row, index);
+		Double value = (Double)fields[index];
+		return value == null ? Double.NaN : value;
+	}
+
 	/**
 	 * Return the number of fields for planets.
 	 * @return number of information fields for a planet.
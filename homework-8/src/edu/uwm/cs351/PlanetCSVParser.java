@@ -0,0 +1,341 @@
+package edu.uwm.cs351;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A parser for exoplanet data in CSV, one row at a time.
+ * Unlike reading lines and breaking them up with
+ * {@link PlanetDataReader#breakCSV(String)}, the parser scans
+ * the characters once in a reusable buffer and remembers where
+ * each field is.  Numbers are parsed directly from the buffer,
+ * and nothing is allocated per row except the strings of string fields.
+ * As with {@link PlanetDataReader#breakCSV(String)}, a field
+ * may be fully quoted with double quotes, and lines starting
+ * with '#' are comments.
+ * <p>
+ * The parser can also read a range of a file directly from memory
+ * mapped regions of the file, in which case bytes are taken to be
+ * ASCII characters without any charset decoding (strings with other
+ * characters are decoded as UTF-8).  Only the buffer of the current
+ * lines is copied to the heap.
+ */
+public class PlanetCSVParser implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final long REGION_SIZE = 1 << 30; // how much of a file to map at once
+
+	private final Reader in; // null if reading from a file
+	private final FileChannel channel; // null if reading from a reader
+	private long next, end; // range of file not yet mapped
+	private MappedByteBuffer region; // mapped bytes not yet read
+	private char[] buf = new char[BUFFER_SIZE];
+	private int pos, limit; // unparsed characters are buf[pos..limit)
+	private boolean eof;
+
+	// the fields of the current row:
+	private int count;
+	private int[] starts = new int[Planet.numFields()];
+	private int[] ends = new int[Planet.numFields()];
+
+	/**
+	 * Create a parser that reads the given source.
+	 * @param r reader to use, must not be null
+	 */
+	public PlanetCSVParser(Reader r) {
+		if (r == null) throw new NullPointerException("reader must not be null");
+		in = r;
+		channel = null;
+	}
+
+	/**
+	 * Create a parser that reads part of a file by mapping it into memory.
+	 * The range should start at the beginning of a line and end at the
+	 * end of a line (or the file).  The channel is not closed by the parser.
+	 * @param ch channel of file to read, must not be null
+	 * @param from position in file of the first byte to read
+	 * @param to position in file after the last byte to read
+	 */
+	public PlanetCSVParser(FileChannel ch, long from, long to) {
+		if (ch == null) throw new NullPointerException("channel must not be null");
+		if (from < 0 || from > to) throw new IllegalArgumentException("bad range [" + from + "," + to + ")");
+		in = null;
+		channel = ch;
+		next = from;
+		end = to;
+	}
+
+	/**
+	 * Read more characters into the buffer, after keeping the
+	 * unparsed characters, and growing the buffer if it is full.
+	 * @return false if there are no more characters
+	 * @throws IOException if reading fails
+	 */
+	private boolean fill() throws IOException {
+		if (eof) return false;
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit-pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if (limit == buf.length) buf = Arrays.copyOf(buf, buf.length*2);
+		int n = read(buf, limit, buf.length-limit);
+		if (n < 0) {
+			eof = true;
+			return false;
+		}
+		limit += n;
+		return true;
+	}
+
+	/**
+	 * Read characters from the source.
+	 * @param cbuf buffer to read into
+	 * @param off where to put the characters
+	 * @param len maximum number of characters to read
+	 * @return number of characters read, or -1 at end of input
+	 * @throws IOException if reading fails
+	 */
+	protected int read(char[] cbuf, int off, int len) throws IOException {
+		if (in != null) return in.read(cbuf, off, len);
+		if (region == null || !region.hasRemaining()) {
+			if (next == end) return -1;
+			long length = Math.min(REGION_SIZE, end - next);
+			region = channel.map(FileChannel.MapMode.READ_ONLY, next, length);
+			next += length;
+		}
+		int n = Math.min(len, region.remaining());
+		for (int i=0; i < n; ++i) {
+			cbuf[off+i] = (char)(region.get() & 0xFF);
+		}
+		return n;
+	}
+
+	/**
+	 * Advance to the next row of data, skipping comments and blank lines.
+	 * @return whether there is another row
+	 * @throws IOException if reading fails
+	 * @throws UnsupportedOperationException if a row has badly placed quotes
+	 */
+	public boolean next() throws IOException {
+		for (;;) {
+			int eol = indexOf('\n', pos);
+			while (eol == -1) {
+				int scanned = limit - pos;
+				if (!fill()) {
+					if (pos == limit) return false;
+					eol = limit; // last line without a newline
+					break;
+				}
+				eol = indexOf('\n', pos + scanned);
+			}
+			int start = pos;
+			pos = eol < limit ? eol + 1 : limit;
+			int end = eol;
+			if (end > start && buf[end-1] == '\r') --end;
+			if (end == start || buf[start] == '#') continue;
+			split(start, end);
+			return true;
+		}
+	}
+
+	private int indexOf(char c, int from) {
+		for (int i=from; i < limit; ++i) {
+			if (buf[i] == c) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Record where each field in the line is.
+	 * @param start index of first character of line
+	 * @param end index after last character of line
+	 */
+	private void split(int start, int end) {
+		count = 0;
+		int i = start;
+		while (i < end) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count*2);
+				ends = Arrays.copyOf(ends, count*2);
+			}
+			if (buf[i] == '"') {
+				int quote = i+1;
+				while (quote < end && buf[quote] != '"') ++quote;
+				if (quote == end) throw new UnsupportedOperationException("cannot handle this line: " + new String(buf, start, end-start));
+				starts[count] = i+1;
+				ends[count++] = quote;
+				i = quote+1;
+				if (i < end && buf[i] == ',') ++i;
+			} else {
+				int comma = i;
+				while (comma < end && buf[comma] != ',' && buf[comma] != '"') ++comma;
+				if (comma < end && buf[comma] == '"') throw new UnsupportedOperationException("cannot handle this line: " + new String(buf, start, end-start));
+				starts[count] = i;
+				ends[count++] = comma;
+				i = comma+1;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of fields in the current row.
+	 * @return number of fields
+	 */
+	public int fieldCount() {
+		return count;
+	}
+
+	private void checkField(int field) {
+		if (field < 0 || field >= count) throw new IndexOutOfBoundsException("no field " + field + " in row of " + count);
+	}
+
+	/**
+	 * Return whether a field of the current row is empty.
+	 * @param field index of field, must be in range [0,fieldCount())
+	 * @return whether the field has no characters
+	 */
+	public boolean isEmpty(int field) {
+		checkField(field);
+		return starts[field] == ends[field];
+	}
+
+	/**
+	 * Return the text of a field of the current row.
+	 * @param field index of field, must be in range [0,fieldCount())
+	 * @return text of the field, without quotes
+	 */
+	public String getString(int field) {
+		checkField(field);
+		int start = starts[field], length = ends[field]-start;
+		if (channel != null) {
+			for (int i=start; i < ends[field]; ++i) {
+				if (buf[i] >= 0x80) return decode(start, length);
+			}
+		}
+		return new String(buf, start, length);
+	}
+
+	/**
+	 * Decode characters that are really bytes from a file as UTF-8.
+	 */
+	private String decode(int start, int length) {
+		byte[] bytes = new byte[length];
+		for (int i=0; i < length; ++i) {
+			bytes[i] = (byte)buf[start+i];
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a field of the current row as an integer.
+	 * @param field index of field, must be in range [0,fieldCount())
+	 * @return integer value of the field
+	 * @throws NumberFormatException if the field is not an integer
+	 */
+	public int getInt(int field) {
+		checkField(field);
+		int i = starts[field], end = ends[field];
+		boolean negative = i < end && buf[i] == '-';
+		if (negative || (i < end && buf[i] == '+')) ++i;
+		if (i == end || end - i > 9) return Integer.parseInt(getString(field));
+		int value = 0;
+		for (; i < end; ++i) {
+			int d = buf[i] - '0';
+			if (d < 0 || d > 9) return Integer.parseInt(getString(field));
+			value = value*10 + d;
+		}
+		return negative ? -value : value;
+	}
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+			1e21, 1e22
+	};
+
+	private static final long MAX_EXACT = 1L << 53;
+
+	/**
+	 * Parse a field of the current row as a double.
+	 * Numbers with at most 15 or so significant digits and a small exponent
+	 * are parsed directly, and correctly rounded since the digits and
+	 * the power of ten are both exact doubles.  Anything else is
+	 * left to {@link Double#parseDouble(String)}.
+	 * @param field index of field, must be in range [0,fieldCount())
+	 * @return double value of the field
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	public double getDouble(int field) {
+		checkField(field);
+		int i = starts[field], end = ends[field];
+		boolean negative = i < end && buf[i] == '-';
+		if (negative || (i < end && buf[i] == '+')) ++i;
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean point = false;
+		for (; i < end; ++i) {
+			char c = buf[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa*10 + (c - '0');
+				if (point) --exponent;
+				if (++digits > 18) return Double.parseDouble(getString(field));
+			} else if (c == '.' && !point) {
+				point = true;
+			} else break;
+		}
+		if (digits == 0) return Double.parseDouble(getString(field));
+		if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+			++i;
+			boolean negativeExponent = i < end && buf[i] == '-';
+			if (negativeExponent || (i < end && buf[i] == '+')) ++i;
+			if (i == end || end - i > 3) return Double.parseDouble(getString(field));
+			int e = 0;
+			for (; i < end; ++i) {
+				int d = buf[i] - '0';
+				if (d < 0 || d > 9) return Double.parseDouble(getString(field));
+				e = e*10 + d;
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i < end || mantissa > MAX_EXACT || exponent < -22 || exponent > 22) {
+			return Double.parseDouble(getString(field));
+		}
+		double value = mantissa;
+		if (exponent < 0) value /= POWERS_OF_TEN[-exponent];
+		else value *= POWERS_OF_TEN[exponent];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Convert the fields of the current row into planet data:
+	 * each field is converted to the type {@link Planet#getFieldType(int)}.
+	 * Empty double fields and missing fields are null.
+	 * @param data array to fill, of length {@link Planet#numFields()}
+	 * @return the array
+	 * @throws NumberFormatException if a numeric field is not a number
+	 */
+	public Object[] getFields(Object[] data) {
+		for (int j=0; j < data.length; ++j) {
+			Class<?> type = Planet.getFieldType(j);
+			if (j >= count) data[j] = null;
+			else if (type == Integer.class) data[j] = getInt(j);
+			else if (type == String.class) data[j] = getString(j);
+			else if (isEmpty(j)) data[j] = null;
+			else data[j] = getDouble(j);
+		}
+		return data;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (in != null) in.close();
+		region = null;
+	}
+}
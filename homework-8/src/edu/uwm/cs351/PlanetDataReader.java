@@ -5,11 +5,27 @@ package edu.uwm.cs351;
 	 * https://github.com/OpenExoplanetCatalogue/open_exoplanet_catalogue
  */
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
 
 /**
  * A class to read exo-planet data in CSV
@@ -17,53 +33,444 @@ import java.util.List;
  */
 public class PlanetDataReader{
 	
-	private final PlanetIndex<String> parentIndex;
+	private static final int NAME_INDEX = Planet.getFieldIndex("identifier");
+	
+	// The catalogue is sorted by name, so the indices must be balanced
+	// to avoid degenerating into lists.
+	private final PlanetIndex<String> parentIndex = new PlanetIndex<>(p -> (String)p.getField(NAME_INDEX), true);
+	
+	// Indices by field, built the first time they are asked for.
+	// The name index is the parent index itself.
+	private final PlanetIndex<?>[] indices = new PlanetIndex<?>[Planet.numFields()];
+	private final Object[] primitiveIndices = new Object[Planet.numFields()];
+	{
+		indices[NAME_INDEX] = parentIndex;
+	}
+	
+	private PlanetDataReader() { } // for readSnapshot
 	
 	/**
 	 * Read exoplanet data in CSV from the given source.
 	 * @param r reader to use must not be null, must follow subset CSV format
 	 */
 	public PlanetDataReader(Reader r) {
-		final int NAME_INDEX = Planet.getFieldIndex("identifier");
-		parentIndex = new PlanetIndex<>(p -> (String)p.getField(NAME_INDEX));
-		try(BufferedReader in = new BufferedReader(r)) {
-			String str;
-			int i = 0;
-			while ((str = in.readLine()) != null) {
-				if(!(str.charAt(0) == '#')) {
-					++i;
-					String[] stringData = breakCSV(str);
-					Object[] data = new Object[25];
-					int j = 0;
-					for(String s: stringData) {
-						if(j == 1) {//integer field
-							data[j] = Integer.parseInt(s);
-						}
-						else if((j >= 13 && j <= 17)|| j == 0 || j == 24) {//string field        
-							data[j] = s;
-						}
-						else { //double field
-							if(s.equals("")) {
-								data[j] = null;
-							}
-							else {
-								data[j] = Double.parseDouble(s);
-							}
-						}
-						++j;
-					}
-					Planet p = new Planet(data);
-					parentIndex.add(p);
-					if(i%200 == 0) {
-						System.out.println("Read " + i + " planets...");
-					}
+		this(r, null);
+	}
+	
+	/**
+	 * Read exoplanet data in CSV from the given source into a table.
+	 * Each planet is added as a row of the table, and the indices
+	 * hold planets that read from the table, which takes much less
+	 * space than separate planet objects.
+	 * @param r reader to use must not be null, must follow subset CSV format
+	 * @param table table to add planets to, or null to create separate planets
+	 */
+	public PlanetDataReader(Reader r, PlanetTable table) {
+		try(PlanetCSVParser in = new PlanetCSVParser(r)) {
+			read(in, table);
+		}
+		catch (IOException e) {
+			System.out.println("File Error: "+ e);
+		}
+	}
+	
+	/**
+	 * Read exoplanet data in CSV from a local file.
+	 * The file is mapped into memory and its bytes parsed as
+	 * ASCII text directly, which avoids decoding it and copying
+	 * it through the heap.
+	 * @param file path of file to read, must not be null, must follow subset CSV format
+	 * @param table table to add planets to, or null to create separate planets
+	 */
+	public PlanetDataReader(Path file, PlanetTable table) {
+		this(file, table, null);
+	}
+	
+	/**
+	 * Read exoplanet data in CSV from a local file, optionally in parallel.
+	 * If a pool is given, the file is split into chunks of whole lines,
+	 * which are parsed by tasks in the pool.  With a table, each chunk
+	 * is parsed into a table of its own, without boxing, and these are
+	 * appended to the table in the order of the file; otherwise each
+	 * chunk is parsed into separate planets.  The index is then built
+	 * from all of the planets at once.
+	 * @param file path of file to read, must not be null, must follow subset CSV format
+	 * @param table table to add planets to, or null to create separate planets
+	 * @param pool pool to parse chunks of the file in, or null to read on this thread
+	 */
+	public PlanetDataReader(Path file, PlanetTable table, ForkJoinPool pool) {
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (pool == null) {
+				try(PlanetCSVParser in = new PlanetCSVParser(ch, 0, ch.size())) {
+					read(in, table);
 				}
+			} else {
+				readParallel(ch, table, pool);
 			}
-			System.out.println("Read " + i + " planets in total");
 		}
 		catch (IOException e) {
 			System.out.println("File Error: "+ e);
 		}
+		catch (UncheckedIOException e) {
+			System.out.println("File Error: "+ e.getCause());
+		}
+	}
+	
+	private static final long MIN_CHUNK_SIZE = 1 << 16;
+	
+	private void readParallel(FileChannel ch, PlanetTable table, ForkJoinPool pool) throws IOException {
+		long size = ch.size();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (4L * pool.getParallelism()));
+		List<Long> bounds = new ArrayList<>();
+		for (long from = 0; from < size; from = nextLine(ch, Math.min(size, from + chunkSize))) {
+			bounds.add(from);
+		}
+		bounds.add(size);
+		List<Planet> planets = new ArrayList<>();
+		if (table == null) {
+			List<ForkJoinTask<List<Planet>>> chunks = new ArrayList<>();
+			for (int i=0; i+1 < bounds.size(); ++i) {
+				final long start = bounds.get(i), end = bounds.get(i+1);
+				chunks.add(pool.submit(() -> readChunk(ch, start, end)));
+			}
+			for (ForkJoinTask<List<Planet>> chunk : chunks) {
+				planets.addAll(chunk.join());
+			}
+		} else {
+			// each chunk is parsed into a table of its own, and the
+			// tables are appended in file order, so rows stay in order
+			List<ForkJoinTask<PlanetTable>> chunks = new ArrayList<>();
+			for (int i=0; i+1 < bounds.size(); ++i) {
+				final long start = bounds.get(i), end = bounds.get(i+1);
+				chunks.add(pool.submit(() -> readSegment(ch, start, end)));
+			}
+			for (ForkJoinTask<PlanetTable> chunk : chunks) {
+				table.addAll(chunk.join());
+			}
+			for (int row=0; row < table.size(); ++row) {
+				planets.add(table.get(row));
+			}
+		}
+		parentIndex.addAll(planets);
+		System.out.println("Read " + planets.size() + " planets in total");
+	}
+	
+	/**
+	 * Return the position in the file of the start of the line after
+	 * the given position.
+	 * @param ch file to search
+	 * @param pos position to start looking for a newline
+	 * @return position just after the next newline, or the size of the file
+	 * @throws IOException if reading fails
+	 */
+	private static long nextLine(FileChannel ch, long pos) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(4096);
+		while (pos < ch.size()) {
+			bytes.clear();
+			int n = ch.read(bytes, pos);
+			for (int i=0; i < n; ++i) {
+				if (bytes.get(i) == '\n') return pos + i + 1;
+			}
+			pos += n;
+		}
+		return ch.size();
+	}
+	
+	private static List<Planet> readChunk(FileChannel ch, long from, long to) {
+		List<Planet> result = new ArrayList<>();
+		try(PlanetCSVParser in = new PlanetCSVParser(ch, from, to)) {
+			Object[] data = new Object[Planet.numFields()];
+			while (in.next()) {
+				result.add(new Planet(in.getFields(data)));
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return result;
+	}
+	
+	private static PlanetTable readSegment(FileChannel ch, long from, long to) {
+		PlanetTable segment = new PlanetTable();
+		try(PlanetCSVParser in = new PlanetCSVParser(ch, from, to)) {
+			while (in.next()) {
+				segment.add(in);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return segment;
+	}
+	
+	private void read(PlanetCSVParser in, PlanetTable table) throws IOException {
+		Object[] data = new Object[Planet.numFields()];
+		List<Planet> planets = new ArrayList<>();
+		while (in.next()) {
+			Planet p = table == null ? new Planet(in.getFields(data)) : table.get(table.add(in));
+			planets.add(p);
+			if(planets.size()%200 == 0) {
+				System.out.println("Read " + planets.size() + " planets...");
+			}
+		}
+		parentIndex.addAll(planets);
+		System.out.println("Read " + planets.size() + " planets in total");
+	}
+	
+	/**
+	 * The changes made to the catalogue by a refresh.
+	 */
+	public static class Changes {
+		private final int added, changed, removed;
+
+		Changes(int added, int changed, int removed) {
+			this.added = added;
+			this.changed = changed;
+			this.removed = removed;
+		}
+
+		/**
+		 * Return the number of planets that are new.
+		 * @return number of planets added
+		 */
+		public int getAdded() {
+			return added;
+		}
+
+		/**
+		 * Return the number of planets with different data.
+		 * @return number of planets replaced by a new version
+		 */
+		public int getChanged() {
+			return changed;
+		}
+
+		/**
+		 * Return the number of planets no longer in the catalogue.
+		 * @return number of planets removed
+		 */
+		public int getRemoved() {
+			return removed;
+		}
+
+		@Override
+		public String toString() {
+			return added + " added, " + changed + " changed, " + removed + " removed";
+		}
+	}
+	
+	/**
+	 * Bring the catalogue up to date with a newer version of the CSV data,
+	 * changing only the planets that are different.
+	 * The planets of the newer version are matched with the current ones
+	 * by identifier: a planet whose identifier is new is added, one whose
+	 * identifier is gone is removed, and one whose data is different
+	 * is updated.  (If several planets share an identifier, those
+	 * not found with the same data are removed or added.)
+	 * The changes are made with {@link #add(Planet)}, {@link #remove(Planet)}
+	 * and {@link #update(Planet, Planet)}, and so keep all shared indices
+	 * consistent, in O(log n) time per change rather than building them again.
+	 * @param r reader of the newer CSV data, must not be null
+	 * @return the changes made
+	 * @throws IOException if reading fails
+	 */
+	public Changes refresh(Reader r) throws IOException {
+		try(PlanetCSVParser in = new PlanetCSVParser(r)) {
+			return refresh(in);
+		}
+	}
+	
+	/**
+	 * Bring the catalogue up to date with a newer version of the CSV data
+	 * in a local file, which is mapped into memory to read it.
+	 * @see #refresh(Reader)
+	 * @param file path of newer file, must not be null
+	 * @return the changes made
+	 * @throws IOException if reading fails
+	 */
+	public Changes refresh(Path file) throws IOException {
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+			PlanetCSVParser in = new PlanetCSVParser(ch, 0, ch.size())) {
+			return refresh(in);
+		}
+	}
+	
+	private static final Comparator<Planet> NAME_ORDER = (p1, p2) -> {
+		int c = ((String)p1.getField(NAME_INDEX)).compareTo((String)p2.getField(NAME_INDEX));
+		return c != 0 ? c : p1.compareTo(p2);
+	};
+	
+	/**
+	 * Compare the newer planets with the current ones, both in the
+	 * order of the parent index (by identifier), group by group.
+	 */
+	private synchronized Changes refresh(PlanetCSVParser in) throws IOException {
+		Object[] data = new Object[Planet.numFields()];
+		List<Planet> newer = new ArrayList<>();
+		while (in.next()) {
+			Planet p = new Planet(in.getFields(data));
+			if (p.getField(NAME_INDEX) != null) newer.add(p);
+		}
+		newer.sort(NAME_ORDER); // nearly linear, since the catalogue is sorted by name
+		List<Planet> current = new ArrayList<>(parentIndex.size());
+		parentIndex.doAll((p) -> current.add(p), null, null, Traversal.IN_ORDER);
+		
+		int added = 0, changed = 0, removed = 0;
+		int i = 0, j = 0;
+		while (i < current.size() || j < newer.size()) {
+			String name;
+			if (i == current.size()) name = (String)newer.get(j).getField(NAME_INDEX);
+			else if (j == newer.size()) name = (String)current.get(i).getField(NAME_INDEX);
+			else {
+				String n1 = (String)current.get(i).getField(NAME_INDEX);
+				String n2 = (String)newer.get(j).getField(NAME_INDEX);
+				name = n1.compareTo(n2) <= 0 ? n1 : n2;
+			}
+			int i2 = i, j2 = j;
+			while (i2 < current.size() && name.equals(current.get(i2).getField(NAME_INDEX))) ++i2;
+			while (j2 < newer.size() && name.equals(newer.get(j2).getField(NAME_INDEX))) ++j2;
+			if (i2 - i == 1 && j2 - j == 1) {
+				if (current.get(i).compareTo(newer.get(j)) != 0) {
+					if (update(current.get(i), newer.get(j))) ++changed;
+				}
+			} else {
+				// merge the two groups, which are both in order
+				while (i < i2 || j < j2) {
+					int c = i == i2 ? 1 : j == j2 ? -1 : current.get(i).compareTo(newer.get(j));
+					if (c < 0) {
+						remove(current.get(i++));
+						++removed;
+					} else if (c > 0) {
+						if (add(newer.get(j))) ++added;
+						++j;
+					} else {
+						++i;
+						++j;
+					}
+				}
+			}
+			i = i2;
+			j = j2;
+		}
+		return new Changes(added, changed, removed);
+	}
+	
+	private static final int SNAPSHOT_MAGIC = 0x504c4e54; // "PLNT"
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final byte PLANET_INDEX = 0, PRIMITIVE_INDEX = 1;
+	private static final long MAX_SNAPSHOT_SIZE = Integer.MAX_VALUE; // mapped as one buffer
+	
+	/**
+	 * Write the catalogue and every index shared by this reader to a
+	 * binary snapshot, which {@link #readSnapshot(Path)} opens again
+	 * much faster than the CSV data can be parsed.
+	 * The snapshot starts with a magic number and version, followed by
+	 * the planets as a {@link PlanetTable} (see {@link PlanetTable#write(java.io.DataOutput)}),
+	 * with the rows in the order of the parent index.  Then comes
+	 * the number of shared indices, and for each, its kind (0 for a
+	 * {@link PlanetIndex}, 1 for a primitive index), its field, its size,
+	 * and the rows of its planets in order.
+	 * A snapshot is mapped into memory as one buffer, so it cannot be
+	 * 2GB or more; a snapshot that would be too large is not left behind.
+	 * @param file where to write the snapshot, must not be null
+	 * @throws IOException if writing fails or the snapshot would be too large
+	 */
+	public synchronized void writeSnapshot(Path file) throws IOException {
+		PlanetTable table = new PlanetTable();
+		Map<Planet,Integer> rows = new IdentityHashMap<>();
+		parentIndex.doAll((p) -> rows.put(p, table.add(p)), null, null, Traversal.IN_ORDER);
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			table.write(out);
+			int count = 0;
+			for (int i=0; i < indices.length; ++i) {
+				if (i != NAME_INDEX && indices[i] != null) ++count;
+				if (primitiveIndices[i] != null) ++count;
+			}
+			out.writeInt(count);
+			for (int i=0; i < indices.length; ++i) {
+				List<Planet> planets = new ArrayList<>();
+				if (i != NAME_INDEX && indices[i] != null) {
+					indices[i].doAll((p) -> planets.add(p), null, null, Traversal.IN_ORDER);
+					writeRows(out, PLANET_INDEX, i, planets, rows);
+					planets.clear();
+				}
+				if (primitiveIndices[i] instanceof DoublePlanetIndex) {
+					((DoublePlanetIndex)primitiveIndices[i]).doAll((p) -> planets.add(p), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Traversal.IN_ORDER);
+					writeRows(out, PRIMITIVE_INDEX, i, planets, rows);
+				} else if (primitiveIndices[i] instanceof IntPlanetIndex) {
+					((IntPlanetIndex)primitiveIndices[i]).doAll((p) -> planets.add(p), Integer.MIN_VALUE, Integer.MAX_VALUE, Traversal.IN_ORDER);
+					writeRows(out, PRIMITIVE_INDEX, i, planets, rows);
+				}
+			}
+		}
+		if (Files.size(file) > MAX_SNAPSHOT_SIZE) {
+			Files.delete(file);
+			throw new IOException("snapshot of " + parentIndex.size() + " planets is too large");
+		}
+	}
+	
+	private static void writeRows(DataOutputStream out, byte kind, int fieldIndex, List<Planet> planets, Map<Planet,Integer> rows) throws IOException {
+		out.writeByte(kind);
+		out.writeInt(fieldIndex);
+		out.writeInt(planets.size());
+		for (Planet p : planets) out.writeInt(rows.get(p));
+	}
+	
+	/**
+	 * Open a snapshot written by {@link #writeSnapshot(Path)}.
+	 * The file is mapped into memory, the table's columns are copied
+	 * from it in bulk, and each index is built at once from its planets,
+	 * which are already in order, rather than by adding planets one by one.
+	 * The planets read from a new table.
+	 * @param file path of snapshot, must not be null
+	 * @return reader with the catalogue and shared indices of the snapshot
+	 * @throws IOException if reading fails or the file is not a valid snapshot
+	 */
+	public static PlanetDataReader readSnapshot(Path file) throws IOException {
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (ch.size() > MAX_SNAPSHOT_SIZE) throw new IOException(file + " is too large for a snapshot");
+			ByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			if (in.getInt() != SNAPSHOT_MAGIC) throw new IOException(file + " is not a planet snapshot");
+			int version = in.getInt();
+			if (version != SNAPSHOT_VERSION) throw new IOException("cannot read snapshot version " + version);
+			PlanetTable table = PlanetTable.read(in);
+			Planet[] planets = new Planet[table.size()];
+			for (int r=0; r < planets.length; ++r) planets[r] = table.get(r);
+			PlanetDataReader result = new PlanetDataReader();
+			result.parentIndex.addAll(List.of(planets));
+			for (int count = in.getInt(); count > 0; --count) {
+				byte kind = in.get();
+				int fieldIndex = in.getInt();
+				if (kind != PLANET_INDEX && kind != PRIMITIVE_INDEX ||
+						fieldIndex < 0 || fieldIndex >= Planet.numFields() || fieldIndex == NAME_INDEX && kind == PLANET_INDEX ||
+						kind == PRIMITIVE_INDEX && Planet.getFieldType(fieldIndex) == String.class) {
+					throw new IOException("snapshot has a bad index of field " + fieldIndex);
+				}
+				int n = in.getInt();
+				if (n < 0 || n > planets.length) throw new IOException("snapshot has an index of " + n + " planets");
+				List<Planet> sorted = new ArrayList<>(n);
+				for (int i=0; i < n; ++i) sorted.add(planets[in.getInt()]);
+				if (kind == PLANET_INDEX) {
+					PlanetIndex<?> index = emptyPlanetIndex(fieldIndex);
+					index.addAll(sorted);
+					result.indices[fieldIndex] = index;
+				} else if (Planet.getFieldType(fieldIndex) == Integer.class) {
+					IntPlanetIndex index = emptyIntIndex(fieldIndex);
+					index.addAll(sorted);
+					result.primitiveIndices[fieldIndex] = index;
+				} else {
+					DoublePlanetIndex index = emptyDoubleIndex(fieldIndex);
+					index.addAll(sorted);
+					result.primitiveIndices[fieldIndex] = index;
+				}
+			}
+			return result;
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException(file + " is truncated", e);
+		}
 	}
 	
 	/**
@@ -96,6 +503,172 @@ public class PlanetDataReader{
 		return contents.toArray(new String[contents.size()]);
 	}
 	
+	private static void checkField(int fieldIndex, Class<?> type, String description) {
+		if (fieldIndex < 0 || fieldIndex >= Planet.numFields() || 
+				type != Planet.getFieldType(fieldIndex)) {
+			throw new IllegalArgumentException("Field " + fieldIndex + " is not " + description + " field.");
+		}
+	}
+	
+	/**
+	 * Return the index for a field from the given registry,
+	 * creating it if this is the first time it is asked for.
+	 * @param registry array of indices by field
+	 * @param fieldIndex field of index, already checked
+	 * @param create how to create the index
+	 * @return the shared index
+	 */
+	@SuppressWarnings("unchecked")
+	private synchronized <T> T lookup(Object[] registry, int fieldIndex, IntFunction<T> create) {
+		if (registry[fieldIndex] == null) registry[fieldIndex] = create.apply(fieldIndex);
+		return (T)registry[fieldIndex];
+	}
+	
+	/**
+	 * Add a planet to the catalogue, that is, to the parent index and to
+	 * every index shared by this reader.  Indices from the create
+	 * methods are separate copies, and are not changed.
+	 * @param p planet to add, must not be null
+	 * @return whether the planet was not already in the catalogue
+	 */
+	public synchronized boolean add(Planet p) {
+		if (!parentIndex.add(p)) return false;
+		for (int i=0; i < indices.length; ++i) {
+			if (i != NAME_INDEX && indices[i] != null) indices[i].add(p);
+			if (primitiveIndices[i] != null) ((PrimitivePlanetIndex)primitiveIndices[i]).add(p);
+		}
+		return true;
+	}
+	
+	/**
+	 * Remove a planet from the catalogue, that is, from the parent index
+	 * and from every index shared by this reader.
+	 * @param p planet to remove, must not be null
+	 * @return whether the planet was in the catalogue
+	 */
+	public synchronized boolean remove(Planet p) {
+		if (!parentIndex.remove(p)) return false;
+		for (int i=0; i < indices.length; ++i) {
+			if (i != NAME_INDEX && indices[i] != null) indices[i].remove(p);
+			if (primitiveIndices[i] != null) ((PrimitivePlanetIndex)primitiveIndices[i]).remove(p);
+		}
+		return true;
+	}
+	
+	/**
+	 * Replace a planet in the catalogue with an updated version,
+	 * in every index shared by this reader.
+	 * Each index takes O(log n) time to remove the old planet and
+	 * add the new one, rather than being built again.
+	 * If the old planet is not in the catalogue, or the replacement
+	 * is already there or has no identifier, nothing is changed.
+	 * @param old planet to replace, must not be null
+	 * @param replacement updated planet, must not be null
+	 * @return whether the old planet was found and replaced
+	 */
+	public synchronized boolean update(Planet old, Planet replacement) {
+		if (replacement == null) throw new NullPointerException("cannot add null");
+		if (!remove(old)) return false;
+		if (!add(replacement)) {
+			add(old);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the index of planets by an integer field, which is built the
+	 * first time it is asked for and then shared by every caller.
+	 * Unlike {@link #createIntegerPlanetIndex(int)}, the index belongs
+	 * to this reader and must not be modified except through
+	 * {@link #add(Planet)}, {@link #remove(Planet)} and {@link #update(Planet, Planet)},
+	 * which keep all the shared indices the same.
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return the PlanetIndex<Integer> sorted by given field
+	 * @throws IllegalArgumentException if the index is not an integer field.
+	 */
+	public PlanetIndex<Integer> getIntegerPlanetIndex(int fieldIndex) {
+		checkField(fieldIndex, Integer.class, "an integer");
+		return lookup(indices, fieldIndex, this::createIntegerPlanetIndex);
+	}
+	
+	/**
+	 * Get the shared index of planets by a double field.
+	 * @see #getIntegerPlanetIndex(int)
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return the PlanetIndex<Double> sorted by given field
+	 * @throws IllegalArgumentException if the index is not a double field.
+	 */
+	public PlanetIndex<Double> getDoublePlanetIndex(int fieldIndex) {
+		checkField(fieldIndex, Double.class, "a double");
+		return lookup(indices, fieldIndex, this::createDoublePlanetIndex);
+	}
+	
+	/**
+	 * Get the shared index of planets by a String field.
+	 * @see #getIntegerPlanetIndex(int)
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return the PlanetIndex<String> sorted by given field
+	 * @throws IllegalArgumentException if the index is not a string field.
+	 */
+	public PlanetIndex<String> getStringPlanetIndex(int fieldIndex) {
+		checkField(fieldIndex, String.class, "a string");
+		return lookup(indices, fieldIndex, this::createStringPlanetIndex);
+	}
+	
+	/**
+	 * Get the shared index of planets by an integer field, with primitive keys.
+	 * @see #getIntegerPlanetIndex(int)
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return the IntPlanetIndex sorted by given field
+	 * @throws IllegalArgumentException if the index is not an integer field.
+	 */
+	public IntPlanetIndex getIntIndex(int fieldIndex) {
+		checkField(fieldIndex, Integer.class, "an integer");
+		return lookup(primitiveIndices, fieldIndex, this::createIntIndex);
+	}
+	
+	/**
+	 * Get the shared index of planets by a double field, with primitive keys.
+	 * @see #getIntegerPlanetIndex(int)
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return the DoublePlanetIndex sorted by given field
+	 * @throws IllegalArgumentException if the index is not a double field.
+	 */
+	public DoublePlanetIndex getDoubleIndex(int fieldIndex) {
+		checkField(fieldIndex, Double.class, "a double");
+		return lookup(primitiveIndices, fieldIndex, this::createDoubleIndex);
+	}
+	
+	/**
+	 * Create an empty index of planets by a field, balanced since
+	 * planets are often added in order.
+	 * @param fieldIndex field of index, already checked to be of the type
+	 * @param type class of the field's values
+	 * @return new empty index
+	 */
+	private static <T extends Comparable<T>> PlanetIndex<T> emptyPlanetIndex(int fieldIndex, Class<T> type) {
+		return new PlanetIndex<>((p) -> type.cast(p.getField(fieldIndex)), true);
+	}
+	
+	private static PlanetIndex<?> emptyPlanetIndex(int fieldIndex) {
+		Class<?> type = Planet.getFieldType(fieldIndex);
+		if (type == Integer.class) return emptyPlanetIndex(fieldIndex, Integer.class);
+		if (type == Double.class) return emptyPlanetIndex(fieldIndex, Double.class);
+		return emptyPlanetIndex(fieldIndex, String.class);
+	}
+	
+	private static IntPlanetIndex emptyIntIndex(int fieldIndex) {
+		return new IntPlanetIndex((p) -> {
+			Integer value = (Integer)p.getField(fieldIndex);
+			return value == null ? IntPlanetIndex.MISSING : value;
+		});
+	}
+	
+	private static DoublePlanetIndex emptyDoubleIndex(int fieldIndex) {
+		return new DoublePlanetIndex((p) -> p.getDouble(fieldIndex));
+	}
+	
 	/**
 	 * Get planets indexed by an integer field.
 	 * @param fieldIndex must be in range of [0,Planet.numFields())
@@ -103,11 +676,8 @@ public class PlanetDataReader{
 	 * @throws IllegalArgumentException if the index is not an integer field.
 	 */
 	public PlanetIndex<Integer> createIntegerPlanetIndex(int fieldIndex) {
-		if (fieldIndex < 0 || fieldIndex >= Planet.numFields() || 
-				Integer.class != Planet.getFieldType(fieldIndex)) {
-			throw new IllegalArgumentException("Field " + fieldIndex + " is not an integer field.");
-		}
-		PlanetIndex<Integer> ret = new PlanetIndex<>((p) -> (Integer)p.getField(fieldIndex));
+		checkField(fieldIndex, Integer.class, "an integer");
+		PlanetIndex<Integer> ret = emptyPlanetIndex(fieldIndex, Integer.class);
 		ret.addAll(parentIndex);
 		return ret;
 	}
@@ -118,11 +688,36 @@ public class PlanetDataReader{
 	 * @throws IllegalArgumentException if the index is not a double field.
 	 */
 	public PlanetIndex<Double> createDoublePlanetIndex(int fieldIndex) {
-		if (fieldIndex < 0 || fieldIndex >= Planet.numFields() || 
-				Double.class != Planet.getFieldType(fieldIndex)) {
-			throw new IllegalArgumentException("Field " + fieldIndex + " is not a double field.");
-		}
-		PlanetIndex<Double> ret = new PlanetIndex<>((p) -> (Double)p.getField(fieldIndex));
+		checkField(fieldIndex, Double.class, "a double");
+		PlanetIndex<Double> ret = emptyPlanetIndex(fieldIndex, Double.class);
+		ret.addAll(parentIndex);
+		return ret;
+	}
+	
+	/**
+	 * Get planets indexed by an integer field, with keys kept as primitive ints.
+	 * Planets missing the field are not in the index.
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return a (fresh) IntPlanetIndex sorted by given field
+	 * @throws IllegalArgumentException if the index is not an integer field.
+	 */
+	public IntPlanetIndex createIntIndex(int fieldIndex) {
+		checkField(fieldIndex, Integer.class, "an integer");
+		IntPlanetIndex ret = emptyIntIndex(fieldIndex);
+		ret.addAll(parentIndex);
+		return ret;
+	}
+	
+	/**
+	 * Get planets indexed by a double field, with keys kept as primitive doubles.
+	 * Planets missing the field are not in the index.
+	 * @param fieldIndex must be in range of [0,Planet.numFields())
+	 * @return a (fresh) DoublePlanetIndex sorted by given field
+	 * @throws IllegalArgumentException if the index is not a double field.
+	 */
+	public DoublePlanetIndex createDoubleIndex(int fieldIndex) {
+		checkField(fieldIndex, Double.class, "a double");
+		DoublePlanetIndex ret = emptyDoubleIndex(fieldIndex);
 		ret.addAll(parentIndex);
 		return ret;
 	}
@@ -133,11 +728,8 @@ public class PlanetDataReader{
 	 * @throws IllegalArgumentException if the index is not a double field.
 	 */
 	public PlanetIndex<String> createStringPlanetIndex(int fieldIndex) {
-		if (fieldIndex < 0 || fieldIndex >= Planet.numFields() || 
-				String.class != Planet.getFieldType(fieldIndex)) {
-			throw new IllegalArgumentException("Field " + fieldIndex + " is not a string field.");
-		}
-		PlanetIndex<String> ret = new PlanetIndex<>((p) -> (String)p.getField(fieldIndex));
+		checkField(fieldIndex, String.class, "a string");
+		PlanetIndex<String> ret = emptyPlanetIndex(fieldIndex, String.class);
 		ret.addAll(parentIndex);
 		return ret;
 	}
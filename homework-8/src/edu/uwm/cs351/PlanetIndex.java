@@ -1,6 +1,20 @@
 package edu.uwm.cs351;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -10,25 +24,92 @@ import junit.framework.TestCase;
 /**
  * An index of planets using some comparable key.
  * We use a function that extracts a key from a planet.
- * The index is sorted using an (unbalanced) binary search tree.
+ * The index is sorted using a binary search tree, which is unbalanced
+ * unless the index is created as balanced, in which case it is
+ * kept as an AVL tree.
  * @param <K> type of key
  */
 public class PlanetIndex<K extends Comparable<K>> {
-	public static enum Traversal { PRE_ORDER, IN_ORDER, POST_ORDER }
+	public static enum Traversal { PRE_ORDER, IN_ORDER, POST_ORDER, REVERSE_ORDER }
+
+	/**
+	 * How much of the invariant to check, when assertions are enabled.
+	 * <ul>
+	 * <li>OFF: nothing is checked.
+	 * <li>INCREMENTAL: only the nodes on the path changed by add or remove
+	 * (and their children) are checked, along with the size.
+	 * <li>SAMPLED: the whole tree is checked every so many operations.
+	 * <li>FULL: the whole tree is checked before and after every operation.
+	 * </ul>
+	 * Checking the whole tree takes linear time, so that FULL makes every
+	 * operation linear, while INCREMENTAL only adds O(log n) to add and remove
+	 * in a balanced index.
+	 * The default is FULL, unless the system property
+	 * <code>edu.uwm.cs351.PlanetIndex.validation</code> names another mode.
+	 * The indices with primitive keys use the same modes and default.
+	 * A {@link PersistentPlanetIndex} uses the same modes, but
+	 * is INCREMENTAL unless the system property says otherwise.
+	 */
+	public static enum Validation { OFF, INCREMENTAL, SAMPLED, FULL }
+
+	static final Validation DEFAULT_VALIDATION = defaultValidation(Validation.FULL); // shared with PrimitivePlanetIndex
+	static final int DEFAULT_SAMPLE_PERIOD = 1000;
+
+	/**
+	 * Return the validation mode named by the system property.
+	 * @param fallback mode to use if the property is missing or not a mode
+	 * @return default validation mode
+	 */
+	static Validation defaultValidation(Validation fallback) {
+		String mode = System.getProperty("edu.uwm.cs351.PlanetIndex.validation");
+		if (mode == null) return fallback;
+		try {
+			return Validation.valueOf(mode.toUpperCase());
+		} catch (IllegalArgumentException ex) {
+			return fallback;
+		}
+	}
 
 	private static class Node {
 		Planet data;
+		Object key; // cached key of data, or null if not cached
 		Node left, right;
+		int height = 1; // number of nodes on the longest path down
+		int count = 1; // number of nodes in this subtree
 
 		Node(Planet p) { data = p; }
+		Node(Planet p, Object k) { data = p; key = k; }
 	}
 
 	private final Function<Planet,K> keyExtractor;
+	private final boolean balanced;
 	private Node root;
 	private int size;
+	private int modCount; // changed whenever the tree is changed
+	private Validation validation = DEFAULT_VALIDATION;
+	private int samplePeriod = DEFAULT_SAMPLE_PERIOD;
+	private int operations; // number of checks skipped in SAMPLED mode
+	private Node[] path = new Node[16]; // scratch space for add
+	private PlanetIndexStats stats; // null unless statistics are kept
+	private double rebuildFactor; // 0 unless subtrees are rebuilt when too deep
+	private double rebuildAlpha; // largest fraction of a subtree allowed in one child
+
+	private static final int PARALLEL_THRESHOLD = 1 << 12; // planets in a subtree worth a task
 
 	private static boolean doReport = true; // changed only by invariant tester
 
+	/**
+	 * Return the key of the planet in this node, using the cached
+	 * key if there is one.
+	 * @param r node, must not be null
+	 * @return key of planet in the node
+	 */
+	@SuppressWarnings("unchecked")
+	private K keyOf(Node r) {
+		if (r.key == null) return keyExtractor.apply(r.data);
+		return (K)r.key;
+	}
+
 	private boolean report(String error) {
 		if (doReport) System.out.println("Invariant error: " + error);
 		// else System.out.println("Caught problem: " + error);
@@ -74,6 +155,9 @@ public class PlanetIndex<K extends Comparable<K>> {
 		K key = keyExtractor.apply(r.data);
 		if(key == null) return report("Key of " +p +"is null");
 		
+		//a cached key must be the key of the planet
+		if(r.key != null && !r.key.equals(key)) return report("Cached key " +r.key +" of " +p +" is not " +key);
+		
 		//outside of lower bound(inclusive)
 		if(lo != null && lo.compareTo(key) > 0) return report("Found " +p +" with " +key +" < " +lo);
 		
@@ -96,6 +180,50 @@ public class PlanetIndex<K extends Comparable<K>> {
 		return okTree(r.left, lo, key, p1, p) && okTree(r.right, key, hi, p, p2);
 	}
 
+	/**
+	 * Check that the heights recorded in a subtree are correct
+	 * and that no node has subtrees whose heights differ by more than one.
+	 * @param r subtree
+	 * @return height of the subtree, or -1 if a problem was found
+	 */
+	private int checkHeights(Node r) {
+		if (r == null) return 0;
+		int hl = checkHeights(r.left);
+		if (hl == -1) return -1;
+		int hr = checkHeights(r.right);
+		if (hr == -1) return -1;
+		if (hl - hr > 1 || hr - hl > 1) {
+			report("Found " + r.data + " with unbalanced subtrees " + hl + " and " + hr);
+			return -1;
+		}
+		int h = 1 + Math.max(hl, hr);
+		if (r.height != h) {
+			report("Found " + r.data + " with height " + r.height + " instead of " + h);
+			return -1;
+		}
+		return h;
+	}
+
+	/**
+	 * Check that the counts recorded in a subtree are correct.
+	 * This is not part of {@link #wellFormed()}, since a tree can
+	 * be well formed before the counts are computed.
+	 * @param r subtree
+	 * @return number of nodes in the subtree, or -1 if a problem was found
+	 */
+	private int checkCounts(Node r) {
+		if (r == null) return 0;
+		int cl = checkCounts(r.left);
+		if (cl == -1) return -1;
+		int cr = checkCounts(r.right);
+		if (cr == -1) return -1;
+		if (r.count != 1 + cl + cr) {
+			report("Found " + r.data + " with count " + r.count + " instead of " + (1 + cl + cr));
+			return -1;
+		}
+		return r.count;
+	}
+
 	public boolean wellFormed() {
 		// 1. The tree is structured correctly
 		if(okTree(root, null, null, null, null) == false) return report("tree is not structured correctly");
@@ -103,26 +231,187 @@ public class PlanetIndex<K extends Comparable<K>> {
 		// 2. The number of nodes is the same is the tree size
 		if(countNodes(root, 0) != size) return report("the number of nodes does not equal the size");
 		
+		// 3. A balanced tree has correct heights and is AVL balanced
+		if(balanced && checkHeights(root) == -1) return report("balanced tree is not balanced");
+		
 		// Nothing is wrong
 		return true;
 	}
 
+	/**
+	 * Check the invariant as much as the validation mode asks for.
+	 * This is what operations assert, rather than {@link #wellFormed()}.
+	 * @return false if a problem was found
+	 */
+	private boolean validate() {
+		switch(validation)
+		{
+		case OFF: return true;
+		case INCREMENTAL: return count(root) == size || report("the count of the root is not the size");
+		case SAMPLED:
+			if(++operations < samplePeriod) return true;
+			operations = 0;
+			break;
+		case FULL: break;
+		}
+		return wellFormed() && (checkCounts(root) == size || report("counts are wrong"));
+	}
+
+	/**
+	 * Check the nodes on the path of the last add or remove,
+	 * if the validation mode is INCREMENTAL.
+	 * @param depth number of nodes on the path
+	 * @return false if a problem was found
+	 */
+	private boolean validatePath(int depth) {
+		if(validation != Validation.INCREMENTAL) return true;
+		for(int i=0; i < depth; ++i)
+		{
+			Node r = path[i];
+			if(!okNode(r)) return false;
+			if(r.left != null && !okNode(r.left)) return false;
+			if(r.right != null && !okNode(r.right)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check a node against its children only: its key, the order
+	 * of its children, and its count and height.
+	 * @param r node to check, not null
+	 * @return false if a problem was found
+	 */
+	private boolean okNode(Node r) {
+		if(r.data == null) return report("found null planet in tree");
+		K key = keyExtractor.apply(r.data);
+		if(key == null) return report("Key of " +r.data +" is null");
+		if(r.key != null && !r.key.equals(key)) return report("Cached key " +r.key +" of " +r.data +" is not " +key);
+		if(r.left != null && compare(r.left, r) >= 0) return report("Found " +r.left.data +" left of " +r.data);
+		if(r.right != null && compare(r, r.right) >= 0) return report("Found " +r.right.data +" right of " +r.data);
+		if(r.count != 1 + count(r.left) + count(r.right)) return report("Found " +r.data +" with count " +r.count);
+		if(!balanced) return true;
+		int hl = height(r.left), hr = height(r.right);
+		if(hl - hr > 1 || hr - hl > 1) return report("Found " +r.data +" with unbalanced subtrees " +hl +" and " +hr);
+		if(r.height != 1 + Math.max(hl, hr)) return report("Found " +r.data +" with height " +r.height);
+		return true;
+	}
+
+	/**
+	 * Set how much of the invariant is checked by each operation
+	 * when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 */
+	public void setValidation(Validation mode) {
+		setValidation(mode, DEFAULT_SAMPLE_PERIOD);
+	}
+
+	/**
+	 * Set how much of the invariant is checked by each operation
+	 * when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 * @param period number of operations per full check, in SAMPLED mode
+	 */
+	public void setValidation(Validation mode, int period) {
+		if (mode == null) throw new NullPointerException("validation mode must not be null");
+		if (period < 1) throw new IllegalArgumentException("period must be positive: " + period);
+		validation = mode;
+		samplePeriod = period;
+		operations = 0;
+	}
+
+	/**
+	 * Return how much of the invariant is checked by each operation.
+	 * @return validation mode
+	 */
+	public Validation getValidation() {
+		return validation;
+	}
+
+	/**
+	 * Start keeping statistics of what this index does in the given
+	 * object, or stop keeping them.  The current height of the tree
+	 * is recorded at once.
+	 * @param s object to keep statistics in, or null to keep none
+	 */
+	public void setStats(PlanetIndexStats s) {
+		stats = s;
+		if(s != null) s.recordHeight(height(root));
+	}
+
+	/**
+	 * Return the object in which statistics are kept.
+	 * @return statistics of this index, or null if none are kept
+	 */
+	public PlanetIndexStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Keep an index that is not balanced from degenerating, by rebuilding
+	 * part of it whenever a planet is added deeper than c&middot;log<sub>2</sub>(n),
+	 * where n is the size of the index.  The subtree rebuilt is that
+	 * of the highest node on the path to the planet with more than
+	 * 2<sup>-1/c</sup> of its planets in one of its subtrees (as in a
+	 * scapegoat tree), so it is rebuilt perfectly balanced.
+	 * Adding planets then takes O(log n) amortized time,
+	 * even if they are added in order.
+	 * A balanced index is never rebuilt, since its height is
+	 * less than 1.45&middot;log<sub>2</sub>(n) anyway.
+	 * @param c factor of height allowed, greater than 1, or 0 never to rebuild
+	 */
+	public void setRebuildFactor(double c) {
+		if(c != 0 && !(c > 1)) throw new IllegalArgumentException("rebuild factor must be 0 or greater than 1: " + c);
+		rebuildFactor = c;
+		rebuildAlpha = c == 0 ? 0 : Math.pow(2, -1 / c);
+	}
+
+	/**
+	 * Return the factor of height above which the tree is rebuilt.
+	 * @return factor given to {@link #setRebuildFactor(double)}, or 0 if not rebuilt
+	 */
+	public double getRebuildFactor() {
+		return rebuildFactor;
+	}
+
 	/**
 	 * Create an empty index of planets
 	 * @param ex key extractor to use, must not be null
 	 */
 	public PlanetIndex(Function<Planet,K> ex) {
+		this(ex, false);
+	}
+
+	/**
+	 * Create an empty index of planets, optionally balanced.
+	 * A balanced index keeps its height O(log n) no matter in
+	 * what order planets are added, at the cost of some rotations
+	 * during {@link #add(Planet)}.  The traversal order of
+	 * {@link Traversal#PRE_ORDER} and {@link Traversal#POST_ORDER}
+	 * then depends on the rotations performed.
+	 * @param ex key extractor to use, must not be null
+	 * @param balanced whether to keep the tree balanced
+	 */
+	public PlanetIndex(Function<Planet,K> ex, boolean balanced) {
 		if (ex == null) throw new NullPointerException("key extractor must not be null");
 		keyExtractor = ex;
+		this.balanced = balanced;
 		assert wellFormed() : "tree badly formed at end of constructor";
 	}
 
+	/**
+	 * Return whether this index keeps its tree balanced.
+	 * @return whether index is balanced
+	 */
+	public boolean isBalanced() {
+		return balanced;
+	}
+
 	/**
 	 * Return number of planets in index
 	 * @return size of index
 	 */
 	public int size() {
-		assert wellFormed() : "tree badly formed at start of size()";
+		assert validate() : "tree badly formed at start of size()";
 		return size;
 	}
 
@@ -133,56 +422,365 @@ public class PlanetIndex<K extends Comparable<K>> {
 	 * @return whether planet needed to be added.
 	 */
 	public boolean add(Planet p) {
-		assert wellFormed() : "Tree badly formed at the start of add";
+		assert validate() : "Tree badly formed at the start of add";
 		
 		if(p == null) throw new NullPointerException("cannot add null");
 		
 		K key = keyExtractor.apply(p);
 		
-		if(key == null) return false;
+		if(key == null)
+		{
+			if(stats != null) stats.recordNullKey();
+			return false;
+		}
 		
 		int oldSize = size;
+		long start = stats == null ? 0 : System.nanoTime();
 		
-		root = doAdd(root, p, key);
+		doAdd(p, key);
 		
-		assert wellFormed() : "Tree badly formed at the end of add";
+		if(stats != null) stats.recordAdd(oldSize < size, System.nanoTime() - start);
+		assert validate() : "Tree badly formed at the end of add";
 		
 		return oldSize < size;
 		
 	}
 	
-	private Node doAdd(Node r, Planet p, K key)
+	/**
+	 * Add a planet with the given key, unless already present.
+	 * The descent is iterative so that even a degenerate tree
+	 * cannot overflow the stack.  The nodes passed on the way down
+	 * are remembered so that a balanced tree can be repaired on the
+	 * way back up.
+	 * @param p planet to add, not null
+	 * @param key key of the planet, not null
+	 */
+	private void doAdd(Planet p, K key)
 	{
-		if(r == null)
+		int depth = 0;
+		Node r = root;
+		int c = 0;
+		while(r != null)
 		{
-			++size;
-			return new Node(p);
+			c = key.compareTo(keyOf(r));
+			
+			if(c == 0) c = p.compareTo(r.data);
+			if(c == 0)
+			{
+				if(stats != null) stats.recordComparisons(depth + 1);
+				Arrays.fill(path, 0, depth, null);
+				return;
+			}
+			
+			if(depth == path.length) path = Arrays.copyOf(path, depth*2);
+			path[depth++] = r;
+			r = c < 0 ? r.left : r.right;
 		}
 		
-		K here = keyExtractor.apply(r.data);
-		int c = key.compareTo(here);
+		++size;
+		++modCount;
+		Node n = new Node(p, key);
+		if(depth == 0)
+		{
+			root = n;
+			if(stats != null) stats.recordHeight(1);
+			return;
+		}
+		if(c < 0) path[depth-1].left = n;
+		else path[depth-1].right = n;
+		for(int i=0; i < depth; ++i) ++path[i].count;
+		
+		if(balanced) retrace(depth);
+		else
+		{
+			if(rebuildFactor > 0 && depth > rebuildFactor * Math.log(size) / Math.log(2)) rebuildScapegoat(depth, n);
+			fixHeights(depth);
+		}
+		if(stats != null)
+		{
+			stats.recordComparisons(depth);
+			stats.recordHeight(height(root));
+		}
+		assert validatePath(depth) : "Tree badly formed along the path of add";
+		Arrays.fill(path, 0, depth, null);
+	}
+
+	/**
+	 * Remove a planet and return true, if it is there, otherwise return
+	 * false, for example if the planet's key is null.
+	 * This takes time proportional to the height of the tree,
+	 * which is O(log n) for a balanced index.
+	 * @param p planet to remove, must not be null
+	 * @return whether planet was removed
+	 */
+	public boolean remove(Planet p) {
+		assert validate() : "Tree badly formed at the start of remove";
+		
+		if(p == null) throw new NullPointerException("cannot remove null");
 		
-		if(c == 0) c = p.compareTo(r.data);
-		if(c == 0) return r;
+		K key = keyExtractor.apply(p);
+		
+		if(key == null) return false;
 		
-		if(c < 0)
+		boolean found = doRemove(p, key);
+		if(found && stats != null) stats.recordRemove();
+		
+		assert validate() : "Tree badly formed at the end of remove";
+		
+		return found;
+	}
+
+	/**
+	 * Remove a planet with the given key, if present.
+	 * If its node has two children, the next planet is moved into
+	 * the node, and the next planet's node is removed instead.
+	 * As with add, the path down is remembered to update counts and
+	 * to rebalance.
+	 * @param p planet to remove, not null
+	 * @param key key of the planet, not null
+	 * @return whether the planet was found
+	 */
+	private boolean doRemove(Planet p, K key)
+	{
+		int depth = 0;
+		Node r = root;
+		while(r != null)
+		{
+			int c = key.compareTo(keyOf(r));
+			
+			if(c == 0) c = p.compareTo(r.data);
+			if(c == 0) break;
+			
+			depth = pushPath(depth, r);
+			r = c < 0 ? r.left : r.right;
+		}
+		if(stats != null) stats.recordComparisons(r == null ? depth : depth + 1);
+		if(r == null)
 		{
-			r.left = doAdd(r.left, p, key);
+			Arrays.fill(path, 0, depth, null);
+			return false;
 		}
-		else
+		
+		if(r.left != null && r.right != null)
 		{
-			r.right = doAdd(r.right, p, key);
+			Node target = r;
+			depth = pushPath(depth, r);
+			r = r.right;
+			while(r.left != null)
+			{
+				depth = pushPath(depth, r);
+				r = r.left;
+			}
+			target.data = r.data;
+			target.key = r.key;
 		}
 		
+		Node child = r.left != null ? r.left : r.right;
+		if(depth == 0) root = child;
+		else if(path[depth-1].left == r) path[depth-1].left = child;
+		else path[depth-1].right = child;
+		--size;
+		++modCount;
+		for(int i=0; i < depth; ++i) --path[i].count;
 		
+		if(balanced) retrace(depth);
+		else fixHeights(depth);
+		if(stats != null) stats.recordHeight(height(root));
+		assert validatePath(depth) : "Tree badly formed along the path of remove";
+		Arrays.fill(path, 0, depth, null);
+		return true;
+	}
+
+	/**
+	 * Rebuild the subtree of the highest node on the path which has
+	 * too many of its nodes in the subtree along the path.
+	 * Such a node must exist if the path is too long.
+	 * @param depth number of nodes on the path
+	 * @param n node added at the end of the path
+	 */
+	private void rebuildScapegoat(int depth, Node n)
+	{
+		int scapegoat = -1;
+		Node child = n;
+		for(int i=depth-1; i >= 0; --i)
+		{
+			if(child.count > rebuildAlpha * path[i].count) scapegoat = i;
+			child = path[i];
+		}
+		if(scapegoat == -1) return;
+		Node sub = rebuild(path[scapegoat]);
+		if(scapegoat == 0) root = sub;
+		else if(path[scapegoat-1].left == path[scapegoat]) path[scapegoat-1].left = sub;
+		else path[scapegoat-1].right = sub;
+	}
+
+	/**
+	 * Rebuild a subtree perfectly balanced.
+	 * @param r root of subtree, must not be null
+	 * @return new root of the subtree
+	 */
+	private static Node rebuild(Node r)
+	{
+		Node[] nodes = new Node[r.count];
+		int n = 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		for(;;)
+		{
+			for(; r != null; r = r.left) stack.push(r);
+			if(stack.isEmpty()) break;
+			r = stack.pop();
+			nodes[n++] = r;
+			r = r.right;
+		}
+		return link(nodes, 0, n);
+	}
+
+	/**
+	 * Rebuild the whole tree perfectly balanced, for example after
+	 * {@link #shapeStats()} shows that it has become too deep.
+	 * This takes linear time.
+	 */
+	public void rebuild() {
+		assert validate() : "Tree badly formed at the start of rebuild";
+		if(root == null) return;
+		root = rebuild(root);
+		++modCount;
+		if(stats != null) stats.recordHeight(height(root));
+		assert validate() : "Tree badly formed at the end of rebuild";
+	}
+
+	private int pushPath(int depth, Node r) {
+		if(depth == path.length) path = Arrays.copyOf(path, depth*2);
+		path[depth] = r;
+		return depth + 1;
+	}
+
+	/**
+	 * Rebalance the nodes on the path, from the bottom up, after
+	 * a node was added or removed below them.  We stop as soon
+	 * as a subtree is unchanged, since then nothing above it changes.
+	 * @param depth number of nodes on the path
+	 */
+	private void retrace(int depth)
+	{
+		while(depth > 0)
+		{
+			Node r = path[--depth];
+			int oldHeight = r.height;
+			Node sub = rebalance(r);
+			if(depth == 0) root = sub;
+			else if(path[depth-1].left == r) path[depth-1].left = sub;
+			else path[depth-1].right = sub;
+			if(sub == r && r.height == oldHeight) break;
+		}
+	}
+
+	/**
+	 * Recompute the heights of the nodes on the path, from the bottom up,
+	 * after a node was added or removed below them in an index that is not
+	 * balanced.  Nodes on the path that were moved by rebuilding a subtree
+	 * already have the right height, and keep it.
+	 * @param depth number of nodes on the path
+	 */
+	private void fixHeights(int depth)
+	{
+		while(depth > 0)
+		{
+			Node r = path[--depth];
+			r.height = 1 + Math.max(height(r.left), height(r.right));
+		}
+	}
+
+	/**
+	 * Replace a planet in the index with another, for example an
+	 * updated version of it, whose key may be different.
+	 * If the old planet is not in the index, or the replacement cannot
+	 * be added because its key is missing or it is already in the index,
+	 * nothing is changed.
+	 * This takes time proportional to the height of the tree,
+	 * which is O(log n) for a balanced index.
+	 * @param old planet to remove, must not be null
+	 * @param replacement planet to add in its place, must not be null
+	 * @return whether the old planet was found and replaced
+	 */
+	public boolean update(Planet old, Planet replacement) {
+		if(replacement == null) throw new NullPointerException("cannot add null");
+		if(!remove(old)) return false;
+		if(!add(replacement))
+		{
+			add(old);
+			return false;
+		}
+		return true;
+	}
+
+	private static int height(Node r) {
+		return r == null ? 0 : r.height;
+	}
+
+	private static int count(Node r) {
+		return r == null ? 0 : r.count;
+	}
+
+	/**
+	 * Recompute the height and count of a node from its subtrees.
+	 * @param r node, must not be null
+	 */
+	private static void fix(Node r) {
+		r.height = 1 + Math.max(height(r.left), height(r.right));
+		r.count = 1 + count(r.left) + count(r.right);
+	}
+
+	private static Node rotateRight(Node r) {
+		Node l = r.left;
+		r.left = l.right;
+		l.right = r;
+		fix(r);
+		fix(l);
+		return l;
+	}
+
+	private static Node rotateLeft(Node r) {
+		Node n = r.right;
+		r.right = n.left;
+		n.left = r;
+		fix(r);
+		fix(n);
+		return n;
+	}
+
+	/**
+	 * Restore the AVL property at a node whose subtrees are balanced
+	 * but may differ in height by two.
+	 * @param r root of subtree, must not be null
+	 * @return new root of subtree
+	 */
+	private static Node rebalance(Node r) {
+		fix(r);
+		int diff = height(r.left) - height(r.right);
+		if (diff > 1) {
+			if (height(r.left.left) < height(r.left.right)) r.left = rotateLeft(r.left);
+			return rotateRight(r);
+		}
+		if (diff < -1) {
+			if (height(r.right.right) < height(r.right.left)) r.right = rotateRight(r.right);
+			return rotateLeft(r);
+		}
 		return r;
 	}
 
 	/**
 	 * Add all planets from this collection.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
 	 * @param coll collection to add planets, must not be null.
 	 */
 	public void addAll(Collection<Planet> coll) {
+		if(size == 0)
+		{
+			build(coll);
+			return;
+		}
 		for(Planet p : coll)
 		{
 			add(p);
@@ -192,45 +790,782 @@ public class PlanetIndex<K extends Comparable<K>> {
 
 	/**
 	 * Add all planets from the parent to this index.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
 	 * @param index existing index of planets, must not be null
 	 */
 	public void addAll(PlanetIndex<?> index) {
+		if(size == 0 && index != this)
+		{
+			List<Planet> planets = new ArrayList<>(index.size());
+			index.doAll((p) -> planets.add(p), null, null, Traversal.IN_ORDER);
+			build(planets);
+			return;
+		}
 		index.doAll((p) -> add(p), null, null, Traversal.PRE_ORDER);
 	}
 
+	/**
+	 * Compare the planets in two nodes in the order of the tree.
+	 * @param n1 first node, not null
+	 * @param n2 second node, not null
+	 * @return negative, zero or positive as for {@link Comparable#compareTo(Object)}
+	 */
+	private int compare(Node n1, Node n2) {
+		int c = keyOf(n1).compareTo(keyOf(n2));
+		if(c == 0) c = n1.data.compareTo(n2.data);
+		return c;
+	}
+
+	/**
+	 * Build the tree of an empty index from a collection of planets.
+	 * The planets are sorted once (which is linear time if they are already
+	 * in order, as when copying an index with the same order) and then
+	 * linked into a perfectly balanced tree in linear time.
+	 * Planets with null keys and duplicates are skipped, as by add.
+	 * @param coll planets to put in the tree, must not be null
+	 */
+	private void build(Collection<Planet> coll) {
+		assert validate() : "Tree badly formed at the start of build";
+		Node[] nodes = new Node[coll.size()];
+		int n = 0;
+		for(Planet p : coll)
+		{
+			if(p == null) throw new NullPointerException("cannot add null");
+			K key = keyExtractor.apply(p);
+			if(key != null) nodes[n++] = new Node(p, key);
+		}
+		Arrays.sort(nodes, 0, n, this::compare);
+		int unique = 0;
+		for(int i=0; i < n; ++i)
+		{
+			if(unique == 0 || compare(nodes[unique-1], nodes[i]) != 0) nodes[unique++] = nodes[i];
+		}
+		root = link(nodes, 0, unique);
+		size = unique;
+		++modCount;
+		if(stats != null)
+		{
+			stats.recordBuild(unique, n - unique, nodes.length - n);
+			stats.recordHeight(height(root));
+		}
+		assert validate() : "Tree badly formed at the end of build";
+	}
+
+	/**
+	 * Link sorted nodes into a perfectly balanced tree.
+	 * @param nodes array of nodes in order
+	 * @param lo index of first node to link
+	 * @param hi index after last node to link
+	 * @return root of tree of the nodes
+	 */
+	private static Node link(Node[] nodes, int lo, int hi) {
+		if(lo >= hi) return null;
+		int mid = (lo + hi) >>> 1;
+		Node r = nodes[mid];
+		r.left = link(nodes, lo, mid);
+		r.right = link(nodes, mid+1, hi);
+		fix(r);
+		return r;
+	}
+
 	/**
 	 * Find all the planets in the given range in the index.
 	 * The consumer function is called on each in turn.
 	 * If the traversal is {@link Traversal#IN_ORDER}, then the
-	 * planets will be handled in order.  Otherwise, the order depends
-	 * on internal data structure order, which can be unpredictable.
+	 * planets will be handled in order, and if it is
+	 * {@link Traversal#REVERSE_ORDER}, in reverse order.  Otherwise, the order
+	 * depends on internal data structure order, which can be unpredictable.
 	 * @param f function to call on each planet in range, must not be null
 	 * @param lo inclusive lower bound (or null, for no lower bound)
 	 * @param hi inclusive upper bound (or null, for no upper bound)
 	 * @param t traversal order, must not be null
 	 */
 	public void doAll(Consumer<Planet> f, K lo, K hi, Traversal t) {
-		assert wellFormed() : "invariant failed in doAll";
+		assert validate() : "invariant failed in doAll";
 		if (t == null || f == null) throw new NullPointerException("doAll requires non-null arguments");
-		doAll(root,f,lo,hi,t);
+		long start = stats == null ? 0 : System.nanoTime();
+		int visited = doAll(root,f,lo,hi,t);
+		if (stats != null) stats.recordDoAll(visited, System.nanoTime() - start);
 	}
 
-	private void doAll(Node r, Consumer<Planet> f, K lo, K hi, Traversal t) {
-		if(r == null) return;
-		
-		K key = keyExtractor.apply(r.data);
-		
-		boolean inLeft = lo == null || lo.compareTo(key) <= 0;
-		boolean inRight = hi == null || hi.compareTo(key) >= 0;
-		boolean inBoth = inLeft && inRight;
-		
-		if(t == Traversal.PRE_ORDER && inBoth) f.accept(r.data);
-		if(inLeft) doAll(r.left, f, lo, hi, t);
-		
-		if(t == Traversal.IN_ORDER && inBoth) f.accept(r.data);
-		if(inRight) doAll(r.right, f, lo, hi, t);
-		
-		if(t == Traversal.POST_ORDER && inBoth) f.accept(r.data);
+	/**
+	 * Find some of the planets in the given range in the index, in order.
+	 * The planets in range are taken in increasing order (or decreasing,
+	 * if descending), the first few are skipped, and the consumer function
+	 * is called on each of the next few in turn.  For example, the ten
+	 * planets with the largest keys at least k are found with
+	 * <code>doAll(f, k, null, true, 0, 10)</code>.
+	 * The planets skipped are not visited at all, and the traversal
+	 * stops as soon as the limit is reached, so this takes time
+	 * proportional to the height of the tree plus the limit.
+	 * @param f function to call on each planet found, must not be null
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @param descending whether to go from the largest keys down
+	 * @param offset number of planets in range to skip, must not be negative
+	 * @param limit maximum number of planets to handle, must not be negative
+	 */
+	public void doAll(Consumer<Planet> f, K lo, K hi, boolean descending, int offset, int limit) {
+		assert validate() : "invariant failed in doAll";
+		if (f == null) throw new NullPointerException("doAll requires non-null arguments");
+		if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+		// the planets in range are at positions [first,end) of the index
+		int first = rank(lo), end = countAtMost(hi);
+		int n = (int)Math.min(limit, (long)end - first - offset);
+		if (n <= 0) return;
+		long start = stats == null ? 0 : System.nanoTime();
+		int visited = descending ? doDescending(end - 1 - offset, n, f) : doAscending(first + offset, n, f);
+		if (stats != null) stats.recordDoAll(visited, System.nanoTime() - start);
+	}
+
+	/**
+	 * Handle planets in order, starting from the given position.
+	 * The stack is made to hold the nodes where we went left on
+	 * the way down to the first position, which are the ones
+	 * to come back to, just as for an in-order traversal.
+	 * @param i position of first planet
+	 * @param n number of planets to handle, there must be that many
+	 * @param f function to call on each
+	 * @return number of nodes visited
+	 */
+	private int doAscending(int i, int n, Consumer<Planet> f) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node r = root;
+		int visited = 0;
+		for(;;++visited)
+		{
+			int left = count(r.left);
+			if(i <= left) stack.push(r);
+			if(i == left) break;
+			if(i < left) r = r.left;
+			else
+			{
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+		while(n-- > 0)
+		{
+			r = stack.pop();
+			f.accept(r.data);
+			for(r = r.right; r != null; r = r.left, ++visited) stack.push(r);
+		}
+		return visited + 1;
+	}
+
+	/**
+	 * Handle planets in reverse order, starting from the given position.
+	 * @param i position of first planet
+	 * @param n number of planets to handle, there must be that many
+	 * @param f function to call on each
+	 * @return number of nodes visited
+	 */
+	private int doDescending(int i, int n, Consumer<Planet> f) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node r = root;
+		int visited = 0;
+		for(;;++visited)
+		{
+			int left = count(r.left);
+			if(i >= left) stack.push(r);
+			if(i == left) break;
+			if(i < left) r = r.left;
+			else
+			{
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+		while(n-- > 0)
+		{
+			r = stack.pop();
+			f.accept(r.data);
+			for(r = r.left; r != null; r = r.right, ++visited) stack.push(r);
+		}
+		return visited + 1;
+	}
+
+	private int doAll(Node r, Consumer<Planet> f, K lo, K hi, Traversal t) {
+		int visited = 0;
+		switch(t)
+		{
+		case PRE_ORDER: visited = doPreOrder(r, f, lo, hi); break;
+		case IN_ORDER: visited = doInOrder(r, f, lo, hi); break;
+		case POST_ORDER: visited = doPostOrder(r, f, lo, hi); break;
+		case REVERSE_ORDER: visited = doReverseOrder(r, f, lo, hi); break;
+		}
+		return visited;
+	}
+
+	// The traversals use an explicit stack rather than recursion
+	// so that degenerate trees cannot overflow the thread stack.
+	// A subtree is only entered if it may contain keys in range.
+	// Each returns the number of nodes it visited.
+
+	private boolean inLeft(K lo, K key) {
+		return lo == null || lo.compareTo(key) <= 0;
+	}
+
+	private boolean inRight(K hi, K key) {
+		return hi == null || hi.compareTo(key) >= 0;
+	}
+
+	private int doPreOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		if(r == null) return 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		int visited = 0;
+		stack.push(r);
+		while(!stack.isEmpty())
+		{
+			r = stack.pop();
+			++visited;
+			K key = keyOf(r);
+			boolean inLeft = inLeft(lo, key);
+			boolean inRight = inRight(hi, key);
+			
+			if(inLeft && inRight) f.accept(r.data);
+			if(inRight && r.right != null) stack.push(r.right);
+			if(inLeft && r.left != null) stack.push(r.left);
+		}
+		return visited;
+	}
+
+	private int doInOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		int visited = 0;
+		for(;;)
+		{
+			while(r != null)
+			{
+				stack.push(r);
+				++visited;
+				r = inLeft(lo, keyOf(r)) ? r.left : null;
+			}
+			if(stack.isEmpty()) return visited;
+			r = stack.pop();
+			K key = keyOf(r);
+			boolean inRight = inRight(hi, key);
+			
+			if(inRight && inLeft(lo, key)) f.accept(r.data);
+			r = inRight ? r.right : null;
+		}
+	}
+
+	private int doReverseOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		int visited = 0;
+		for(;;)
+		{
+			while(r != null)
+			{
+				stack.push(r);
+				++visited;
+				r = inRight(hi, keyOf(r)) ? r.right : null;
+			}
+			if(stack.isEmpty()) return visited;
+			r = stack.pop();
+			K key = keyOf(r);
+			boolean inLeft = inLeft(lo, key);
+			
+			if(inLeft && inRight(hi, key)) f.accept(r.data);
+			r = inLeft ? r.left : null;
+		}
+	}
+
+	private int doPostOrder(Node r, Consumer<Planet> f, K lo, K hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		int visited = 0;
+		Node last = null;
+		while(r != null || !stack.isEmpty())
+		{
+			if(r != null)
+			{
+				stack.push(r);
+				++visited;
+				r = inLeft(lo, keyOf(r)) ? r.left : null;
+				continue;
+			}
+			Node top = stack.peek();
+			K key = keyOf(top);
+			boolean inRight = inRight(hi, key);
+			
+			if(inRight && top.right != null && top.right != last)
+			{
+				r = top.right;
+			}
+			else
+			{
+				stack.pop();
+				if(inRight && inLeft(lo, key)) f.accept(top.data);
+				last = top;
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * Return the number of planets with keys less than the given key,
+	 * which is the position of the first planet with the key,
+	 * if there is one.  This takes time proportional to the height of
+	 * the tree, which is O(log n) for a balanced index.
+	 * @param key key to compare with, or null (for no planets)
+	 * @return number of planets with smaller keys
+	 */
+	public int rank(K key) {
+		assert validate() : "invariant failed in rank";
+		if(key == null) return 0;
+		int n = 0;
+		Node r = root;
+		while(r != null)
+		{
+			if(key.compareTo(keyOf(r)) > 0)
+			{
+				n += count(r.left) + 1;
+				r = r.right;
+			}
+			else r = r.left;
+		}
+		return n;
+	}
+
+	/**
+	 * Return the number of planets with keys at most the given key.
+	 * @param key key to compare with, or null (for all planets)
+	 * @return number of planets with keys that are not larger
+	 */
+	private int countAtMost(K key) {
+		if(key == null) return size;
+		int n = 0;
+		Node r = root;
+		while(r != null)
+		{
+			if(key.compareTo(keyOf(r)) >= 0)
+			{
+				n += count(r.left) + 1;
+				r = r.right;
+			}
+			else r = r.left;
+		}
+		return n;
+	}
+
+	/**
+	 * Return the number of planets in the given range,
+	 * which is the number that {@link #doAll} would visit,
+	 * but without visiting them.  This takes time proportional to
+	 * the height of the tree, which is O(log n) for a balanced index.
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @return number of planets in range
+	 */
+	public int countInRange(K lo, K hi) {
+		assert validate() : "invariant failed in countInRange";
+		return Math.max(0, countAtMost(hi) - rank(lo));
+	}
+
+	/**
+	 * Return the planet at the given position in the order of the index,
+	 * as would be visited by an {@link Traversal#IN_ORDER} traversal.
+	 * This takes time proportional to the height of the tree,
+	 * which is O(log n) for a balanced index.
+	 * @param i position of planet, must be in range [0,size())
+	 * @return planet at that position
+	 * @throws IndexOutOfBoundsException if the position is not in range
+	 */
+	public Planet select(int i) {
+		assert validate() : "invariant failed in select";
+		if(i < 0 || i >= size) throw new IndexOutOfBoundsException("no planet " + i + " in index of " + size);
+		Node r = root;
+		for(;;)
+		{
+			int left = count(r.left);
+			if(i == left) return r.data;
+			if(i < left) r = r.left;
+			else
+			{
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+	}
+
+	/**
+	 * The shape of the tree of an index at some time, which shows how
+	 * much work operations on the index must do.
+	 * The depth of the root is 0.
+	 */
+	public static class Shape {
+		private final int size, height;
+		private final long totalDepth;
+		private final int[] depths;
+		private final SortedMap<Integer,Integer> cardinalities;
+
+		Shape(int size, int[] depths, SortedMap<Integer,Integer> cardinalities) {
+			this.size = size;
+			this.height = depths.length;
+			long total = 0;
+			for(int d=0; d < depths.length; ++d) total += (long)d * depths[d];
+			totalDepth = total;
+			this.depths = depths;
+			this.cardinalities = Collections.unmodifiableSortedMap(cardinalities);
+		}
+
+		/**
+		 * Return the number of planets in the index.
+		 * @return size of index
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * Return the number of nodes on the longest path from the root.
+		 * @return height of tree
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Return the depth of the deepest node.
+		 * @return greatest depth, or -1 if the index is empty
+		 */
+		public int getMaxDepth() {
+			return height - 1;
+		}
+
+		/**
+		 * Return the average depth of a node, which is the
+		 * number of comparisons needed to find a planet, less one.
+		 * @return average depth, or 0 if the index is empty
+		 */
+		public double getAverageDepth() {
+			return size == 0 ? 0 : (double)totalDepth / size;
+		}
+
+		/**
+		 * Return how many nodes are at each depth.
+		 * @return array whose element d is the number of nodes at depth d
+		 */
+		public int[] getDepthHistogram() {
+			return depths.clone();
+		}
+
+		/**
+		 * Return how many keys are shared by how many planets.
+		 * For example, if every planet has a different key, the only
+		 * entry is from 1 to the size of the index.
+		 * Many planets with the same key make ranges of that key
+		 * expensive to traverse.
+		 * @return map from number of planets to number of keys with that many planets
+		 */
+		public SortedMap<Integer,Integer> getKeyCardinalities() {
+			return cardinalities;
+		}
+
+		/**
+		 * Return the height of the tree compared with the height
+		 * of a perfectly balanced tree of the same size.
+		 * @return ratio of heights, which is at least 1
+		 */
+		public double getImbalance() {
+			int best = 32 - Integer.numberOfLeadingZeros(size);
+			return size == 0 ? 1 : (double)height / best;
+		}
+
+		@Override
+		public String toString() {
+			return "size " + size + ", height " + height + " (" + String.format("%.2f", getImbalance()) +
+					" times the least), average depth " + String.format("%.2f", getAverageDepth()) +
+					", depths " + Arrays.toString(depths) + ", planets per key " + cardinalities;
+		}
+	}
+
+	/**
+	 * Return the shape of the tree: its height, how deep the nodes
+	 * are, and how many planets share keys.  This takes linear time.
+	 * @return shape of the tree now
+	 */
+	public Shape shapeStats() {
+		assert validate() : "invariant failed in shapeStats";
+		int[] depths = new int[16];
+		int height = 0;
+		Deque<Node> level = new ArrayDeque<>();
+		if(root != null) level.add(root);
+		while(!level.isEmpty())
+		{
+			if(height == depths.length) depths = Arrays.copyOf(depths, height*2);
+			depths[height++] = level.size();
+			for(int n = level.size(); n > 0; --n)
+			{
+				Node r = level.remove();
+				if(r.left != null) level.add(r.left);
+				if(r.right != null) level.add(r.right);
+			}
+		}
+		SortedMap<Integer,Integer> cardinalities = new TreeMap<>();
+		K previous = null;
+		int run = 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		for(Node r = root;;)
+		{
+			for(; r != null; r = r.left) stack.push(r);
+			if(stack.isEmpty()) break;
+			r = stack.pop();
+			K key = keyOf(r);
+			if(run > 0 && previous.compareTo(key) == 0) ++run;
+			else
+			{
+				if(run > 0) cardinalities.merge(run, 1, Integer::sum);
+				previous = key;
+				run = 1;
+			}
+			r = r.right;
+		}
+		if(run > 0) cardinalities.merge(run, 1, Integer::sum);
+		return new Shape(size, Arrays.copyOf(depths, height), cardinalities);
+	}
+
+	/**
+	 * Find all the planets in the given range in the index, using
+	 * several threads of the common fork-join pool for large ranges.
+	 * The consumer function is called on each planet once, but
+	 * in NO particular order, and possibly from several threads at once,
+	 * so it must be thread-safe.  The method returns after
+	 * the function has been called on every planet in the range.
+	 * If the function throws an exception, some planets may not be handled
+	 * and the exception is thrown from this method.
+	 * The index must not be changed while this method runs.
+	 * @param f thread-safe function to call on each planet in range, must not be null
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 */
+	public void parallelDoAll(Consumer<Planet> f, K lo, K hi) {
+		assert validate() : "invariant failed in parallelDoAll";
+		if (f == null) throw new NullPointerException("parallelDoAll requires non-null function");
+		if (root == null) return;
+		ForkJoinPool.commonPool().invoke(new RangeTask(root, f, lo, hi));
+	}
+
+	/**
+	 * A task to handle all planets in range in a subtree.
+	 * The task goes down the right spine of its subtree, forking a task
+	 * for each left subtree with more than PARALLEL_THRESHOLD planets
+	 * and handling smaller ones itself.  Once it has found about
+	 * PARALLEL_THRESHOLD planets of its own, it forks a task for the rest
+	 * of the spine, before handling them, so that even the long spine
+	 * of an unbalanced tree built from sorted planets is shared out.
+	 */
+	private class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Node subtree;
+		private final Consumer<Planet> f;
+		private final K lo, hi;
+
+		RangeTask(Node r, Consumer<Planet> f, K lo, K hi) {
+			subtree = r;
+			this.f = f;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		private void fork(Node r, List<RangeTask> forked) {
+			RangeTask task = new RangeTask(r, f, lo, hi);
+			task.fork();
+			forked.add(task);
+		}
+
+		@Override
+		protected void compute() {
+			List<RangeTask> forked = new ArrayList<>();
+			List<Node> spine = new ArrayList<>();
+			Node r = subtree;
+			int work = 0;
+			while(r != null && r.count > PARALLEL_THRESHOLD && work < PARALLEL_THRESHOLD)
+			{
+				spine.add(r);
+				if(count(r.left) <= PARALLEL_THRESHOLD) work += count(r.left);
+				++work;
+				r = inRight(hi, keyOf(r)) ? r.right : null;
+			}
+			if(r != null && r.count > PARALLEL_THRESHOLD)
+			{
+				fork(r, forked);
+				r = null;
+			}
+			for(Node s : spine)
+			{
+				K key = keyOf(s);
+				boolean inLeft = inLeft(lo, key);
+				if(inLeft && s.left != null)
+				{
+					if(s.left.count > PARALLEL_THRESHOLD) fork(s.left, forked);
+					else doInOrder(s.left, f, lo, hi);
+				}
+				if(inLeft && inRight(hi, key)) f.accept(s.data);
+			}
+			doInOrder(r, f, lo, hi);
+			for(RangeTask task : forked) task.join();
+		}
+	}
+
+	/**
+	 * Return an iterator over the planets in the given range, in order.
+	 * Unlike {@link #doAll}, the caller decides when to get each planet,
+	 * and can stop at any time.
+	 * The iterator fails with a {@link ConcurrentModificationException}
+	 * if the index is changed other than through the iterator.
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @return iterator over the planets in the range
+	 */
+	public Iterator<Planet> iterator(K lo, K hi) {
+		assert validate() : "invariant failed in iterator";
+		return new Cursor(lo, hi);
+	}
+
+	/**
+	 * Return a spliterator over the planets in the given range, in order,
+	 * for example to use with {@link java.util.stream.StreamSupport}.
+	 * The spliterator splits off subtrees of the index, so that parallel
+	 * streams can work on different parts of the range at once.
+	 * The spliterator fails with a {@link ConcurrentModificationException}
+	 * if the index is changed while it is being used.
+	 * @param lo inclusive lower bound (or null, for no lower bound)
+	 * @param hi inclusive upper bound (or null, for no upper bound)
+	 * @return spliterator over the planets in the range
+	 */
+	public Spliterator<Planet> spliterator(K lo, K hi) {
+		assert validate() : "invariant failed in spliterator";
+		return new Cursor(lo, hi);
+	}
+
+	/**
+	 * An in-order cursor over part of the tree.
+	 * Each node on the stack is still to be visited,
+	 * followed by its right subtree, and nodes higher on the stack
+	 * come first.  A cursor that was split off stops at a fence,
+	 * the first node of the other part.
+	 */
+	private class Cursor implements Iterator<Planet>, Spliterator<Planet> {
+		private Deque<Node> stack;
+		private final K lo, hi;
+		private final Node fence; // first node not to visit, or null
+		private long estimate;
+		private final int expectedModCount;
+		private Node lookahead; // next node if already found, or null
+
+		Cursor(K lo, K hi) {
+			this(new ArrayDeque<>(), lo, hi, null, size, modCount);
+			descend(root);
+		}
+
+		private Cursor(Deque<Node> s, K lo, K hi, Node fence, long estimate, int expected) {
+			stack = s;
+			this.lo = lo;
+			this.hi = hi;
+			this.fence = fence;
+			this.estimate = estimate;
+			expectedModCount = expected;
+		}
+
+		private void descend(Node r) {
+			while(r != null)
+			{
+				stack.push(r);
+				r = inLeft(lo, keyOf(r)) ? r.left : null;
+			}
+		}
+
+		/**
+		 * Move to the next node in range.
+		 * @return next node in range, or null if there are no more
+		 */
+		private Node advance() {
+			if(modCount != expectedModCount) throw new ConcurrentModificationException("index changed during iteration");
+			while(!stack.isEmpty())
+			{
+				Node r = stack.pop();
+				K key = keyOf(r);
+				if(r == fence || !inRight(hi, key))
+				{
+					stack.clear();
+					return null;
+				}
+				descend(r.right);
+				if(inLeft(lo, key)) return r;
+			}
+			return null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(lookahead == null) lookahead = advance();
+			return lookahead != null;
+		}
+
+		@Override
+		public Planet next() {
+			if(!hasNext()) throw new NoSuchElementException("no more planets in range");
+			Node r = lookahead;
+			lookahead = null;
+			return r.data;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Planet> action) {
+			if(action == null) throw new NullPointerException("action must not be null");
+			Node r = lookahead == null ? advance() : lookahead;
+			lookahead = null;
+			if(r == null) return false;
+			action.accept(r.data);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Planet> action) {
+			while(tryAdvance(action)) { }
+		}
+
+		/**
+		 * Split off the first part of what is left, which is
+		 * everything above the bottom of the stack if there is more than
+		 * one node on it, or else the one node without its right subtree.
+		 */
+		@Override
+		public Spliterator<Planet> trySplit() {
+			if(lookahead != null || stack.isEmpty()) return null;
+			Deque<Node> prefix = stack;
+			stack = new ArrayDeque<>();
+			if(prefix.size() > 1) stack.push(prefix.pollLast());
+			else
+			{
+				Node r = prefix.peek();
+				if(r.right != null && inRight(hi, keyOf(r))) descend(r.right);
+				if(stack.isEmpty() || stack.peek() == fence)
+				{
+					// only one node left before the fence
+					stack = prefix;
+					return null;
+				}
+			}
+			Node boundary = stack.peek();
+			long half = estimate >>> 1;
+			estimate -= half;
+			return new Cursor(prefix, lo, hi, boundary, half, expectedModCount);
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | NONNULL;
+		}
 	}
 
 	// Don't change this class:
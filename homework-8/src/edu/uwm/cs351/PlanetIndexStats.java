@@ -0,0 +1,201 @@
+package edu.uwm.cs351;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of what a {@link PlanetIndex} is doing, for monitoring it
+ * while it is in use.  An index only keeps statistics if it is given
+ * an object of this class with {@link PlanetIndex#setStats(PlanetIndexStats)},
+ * and otherwise costs nothing but a test for null in each operation.
+ * <p>
+ * The counters can be read at any time, even while the index is in use
+ * by other threads.  Latencies are kept in histograms whose bucket i counts
+ * the operations that took from 2<sup>i</sup> up to 2<sup>i+1</sup> nanoseconds.
+ * The statistics can also be watched through JMX, for example by
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(stats,
+ *     new ObjectName("edu.uwm.cs351:type=PlanetIndex,name=mass"));
+ * </pre>
+ */
+public class PlanetIndexStats implements PlanetIndexStatsMBean {
+
+	private static final int BUCKETS = 64;
+
+	private final LongAdder adds = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder nullKeys = new LongAdder();
+	private final LongAdder removes = new LongAdder();
+	private final LongAdder comparisons = new LongAdder();
+	private final LongAdder doAlls = new LongAdder();
+	private final LongAdder nodesVisited = new LongAdder();
+	private volatile int height;
+	private final AtomicLongArray addLatency = new AtomicLongArray(BUCKETS);
+	private final AtomicLongArray doAllLatency = new AtomicLongArray(BUCKETS);
+
+	private static void record(AtomicLongArray histogram, long nanos) {
+		histogram.incrementAndGet(nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	private static long[] copy(AtomicLongArray histogram) {
+		long[] result = new long[BUCKETS];
+		for (int i=0; i < BUCKETS; ++i) result[i] = histogram.get(i);
+		return result;
+	}
+
+	// The index calls these as it works:
+
+	void recordAdd(boolean added, long nanos) {
+		if (added) adds.increment();
+		else duplicates.increment();
+		record(addLatency, nanos);
+	}
+
+	void recordBuild(int added, int duplicate, int nulls) {
+		adds.add(added);
+		duplicates.add(duplicate);
+		nullKeys.add(nulls);
+	}
+
+	void recordNullKey() {
+		nullKeys.increment();
+	}
+
+	void recordRemove() {
+		removes.increment();
+	}
+
+	void recordComparisons(int n) {
+		comparisons.add(n);
+	}
+
+	void recordDoAll(int visited, long nanos) {
+		doAlls.increment();
+		nodesVisited.add(visited);
+		record(doAllLatency, nanos);
+	}
+
+	void recordHeight(int h) {
+		height = h;
+	}
+
+	/**
+	 * Return the number of planets added, one by one or all at once.
+	 * @return number of planets added
+	 */
+	@Override
+	public long getAdds() {
+		return adds.sum();
+	}
+
+	/**
+	 * Return the number of planets not added because they were
+	 * already in the index.
+	 * @return number of duplicates rejected
+	 */
+	@Override
+	public long getDuplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * Return the number of planets not added because their key was null.
+	 * @return number of planets with null keys rejected
+	 */
+	@Override
+	public long getNullKeys() {
+		return nullKeys.sum();
+	}
+
+	/**
+	 * Return the number of planets removed.
+	 * @return number of planets removed
+	 */
+	@Override
+	public long getRemoves() {
+		return removes.sum();
+	}
+
+	/**
+	 * Return the number of nodes whose key was compared with the key
+	 * of a planet being added or removed.
+	 * @return number of comparisons by add and remove
+	 */
+	@Override
+	public long getComparisons() {
+		return comparisons.sum();
+	}
+
+	/**
+	 * Return the number of traversals with doAll.
+	 * @return number of traversals
+	 */
+	@Override
+	public long getDoAlls() {
+		return doAlls.sum();
+	}
+
+	/**
+	 * Return the number of nodes visited by all the traversals,
+	 * including those visited to find where the range starts.
+	 * Divided by {@link #getDoAlls()}, it gives the nodes visited per traversal.
+	 * @return number of nodes visited by doAll
+	 */
+	@Override
+	public long getNodesVisited() {
+		return nodesVisited.sum();
+	}
+
+	/**
+	 * Return the height of the tree after the last change.
+	 * @return height of the tree
+	 */
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Return a copy of the histogram of add latencies.
+	 * @return counts of adds by log<sub>2</sub> of the nanoseconds taken
+	 */
+	@Override
+	public long[] getAddLatencyHistogram() {
+		return copy(addLatency);
+	}
+
+	/**
+	 * Return a copy of the histogram of doAll latencies, including
+	 * the time taken by the consumer function.
+	 * @return counts of traversals by log<sub>2</sub> of the nanoseconds taken
+	 */
+	@Override
+	public long[] getDoAllLatencyHistogram() {
+		return copy(doAllLatency);
+	}
+
+	/**
+	 * Set all the counts back to zero.  The height is kept.
+	 */
+	@Override
+	public void reset() {
+		adds.reset();
+		duplicates.reset();
+		nullKeys.reset();
+		removes.reset();
+		comparisons.reset();
+		doAlls.reset();
+		nodesVisited.reset();
+		for (int i=0; i < BUCKETS; ++i) {
+			addLatency.set(i, 0);
+			doAllLatency.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getAdds() + " adds, " + getDuplicates() + " duplicates, " + getNullKeys() + " null keys, " +
+				getRemoves() + " removes, " + getComparisons() + " comparisons, " + getDoAlls() + " doAlls visiting " +
+				getNodesVisited() + " nodes, height " + getHeight();
+	}
+}
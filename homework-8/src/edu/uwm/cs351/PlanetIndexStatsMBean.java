@@ -0,0 +1,20 @@
+package edu.uwm.cs351;
+
+/**
+ * The management interface of {@link PlanetIndexStats}, so that the
+ * statistics of an index can be watched with JMX tools such as jconsole.
+ */
+public interface PlanetIndexStatsMBean {
+
+	long getAdds();
+	long getDuplicates();
+	long getNullKeys();
+	long getRemoves();
+	long getComparisons();
+	long getDoAlls();
+	long getNodesVisited();
+	int getHeight();
+	long[] getAddLatencyHistogram();
+	long[] getDoAllLatencyHistogram();
+	void reset();
+}
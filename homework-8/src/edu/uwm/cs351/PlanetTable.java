@@ -0,0 +1,419 @@
+package edu.uwm.cs351;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column-oriented store of planet data.
+ * Rather than each planet having its own array of boxed values,
+ * each numeric field is stored in a primitive array with a bitmap
+ * recording which values are missing, and each string field is
+ * stored as codes into a dictionary of the distinct strings in
+ * that field (there are only a handful of discovery methods, for example).
+ * Rows are identified by their position (0, 1, ...) and
+ * can be viewed as {@link Planet} objects that read from the table.
+ */
+public class PlanetTable {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int size;
+	private int capacity = INITIAL_CAPACITY;
+
+	// For each field, exactly one of doubles[i] and ints[i] is non-null.
+	// String fields use ints[i] for codes, with -1 for a missing string.
+	private final double[][] doubles;
+	private final int[][] ints;
+	private final long[][] nulls; // bitmap of missing values in numeric fields
+	private final List<List<String>> dictionaries;
+	private final List<Map<String,Integer>> codes;
+
+	/**
+	 * Create an empty table.
+	 */
+	public PlanetTable() {
+		int n = Planet.numFields();
+		doubles = new double[n][];
+		ints = new int[n][];
+		nulls = new long[n][];
+		dictionaries = new ArrayList<>(n);
+		codes = new ArrayList<>(n);
+		for (int i=0; i < n; ++i) {
+			Class<?> type = Planet.getFieldType(i);
+			if (type == Double.class) doubles[i] = new double[capacity];
+			else ints[i] = new int[capacity];
+			if (type == String.class) {
+				dictionaries.add(new ArrayList<>());
+				codes.add(new HashMap<>());
+			} else {
+				nulls[i] = new long[bitmapLength(capacity)];
+				dictionaries.add(null);
+				codes.add(null);
+			}
+		}
+	}
+
+	private static int bitmapLength(int capacity) {
+		return (capacity + 63) >>> 6;
+	}
+
+	/**
+	 * Return the number of rows in the table.
+	 * @return number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void ensureCapacity(int cap) {
+		if (cap <= capacity) return;
+		int newCapacity = Math.max(cap, capacity*2);
+		for (int i=0; i < doubles.length; ++i) {
+			if (doubles[i] != null) doubles[i] = Arrays.copyOf(doubles[i], newCapacity);
+			if (ints[i] != null) ints[i] = Arrays.copyOf(ints[i], newCapacity);
+			if (nulls[i] != null) nulls[i] = Arrays.copyOf(nulls[i], bitmapLength(newCapacity));
+		}
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Add a row to the table with the given field values.
+	 * @param input array of planet values, values may be null
+	 * @return row number of the new row
+	 * @throws IllegalArgumentException if an input field is not of correct type
+	 */
+	public int add(Object[] input) {
+		for (int i=0; i < doubles.length; ++i) {
+			Class<?> type = Planet.getFieldType(i);
+			if (input[i] != null && !type.isInstance(input[i]))
+				throw new IllegalArgumentException("input field " + input[i] + " (a " + input[i].getClass() + " ) is not of the same class as fields[i] - " + type);
+		}
+		ensureCapacity(size+1);
+		int row = size++;
+		for (int i=0; i < doubles.length; ++i) {
+			set(row, i, input[i]);
+		}
+		return row;
+	}
+
+	/**
+	 * Add a row to the table with the fields of the given planet.
+	 * @param p planet to copy, must not be null
+	 * @return row number of the new row
+	 */
+	public int add(Planet p) {
+		ensureCapacity(size+1);
+		int row = size++;
+		for (int i=0; i < doubles.length; ++i) {
+			set(row, i, p.getField(i));
+		}
+		return row;
+	}
+
+	/**
+	 * Add a row to the table from the current row of a parser.
+	 * Numbers go straight from the parser into the columns without boxing.
+	 * Fields are converted as in {@link PlanetCSVParser#getFields(Object[])}.
+	 * @param in parser positioned at a row, must not be null
+	 * @return row number of the new row
+	 * @throws NumberFormatException if a numeric field is not a number
+	 */
+	int add(PlanetCSVParser in) {
+		ensureCapacity(size+1);
+		int row = size;
+		for (int i=0; i < doubles.length; ++i) {
+			if (i >= in.fieldCount() || (doubles[i] != null && in.isEmpty(i))) {
+				set(row, i, null);
+			} else if (nulls[i] == null) {
+				ints[i][row] = encode(i, in.getString(i));
+			} else {
+				if (doubles[i] != null) doubles[i][row] = in.getDouble(i);
+				else ints[i][row] = in.getInt(i);
+				nulls[i][row >>> 6] &= ~(1L << row);
+			}
+		}
+		return size++;
+	}
+
+	/**
+	 * Append all the rows of another table to this one, in order.
+	 * Numeric columns and their bitmaps are copied in bulk, and the
+	 * codes of string columns are translated into this table's dictionaries.
+	 * @param other table whose rows to append, must not be null or this table
+	 * @return row number of the first appended row
+	 */
+	int addAll(PlanetTable other) {
+		int first = size, n = other.size;
+		ensureCapacity(first + n);
+		for (int i=0; i < doubles.length; ++i) {
+			if (nulls[i] == null) {
+				List<String> dictionary = other.dictionaries.get(i);
+				int[] translate = new int[dictionary.size()];
+				for (int k=0; k < translate.length; ++k) translate[k] = encode(i, dictionary.get(k));
+				for (int r=0; r < n; ++r) {
+					int code = other.ints[i][r];
+					ints[i][first + r] = code == -1 ? -1 : translate[code];
+				}
+			} else {
+				if (doubles[i] != null) System.arraycopy(other.doubles[i], 0, doubles[i], first, n);
+				else System.arraycopy(other.ints[i], 0, ints[i], first, n);
+				for (int r=0; r < n; ++r) {
+					int row = first + r;
+					if ((other.nulls[i][r >>> 6] & (1L << r)) != 0) nulls[i][row >>> 6] |= 1L << row;
+					else nulls[i][row >>> 6] &= ~(1L << row);
+				}
+			}
+		}
+		size += n;
+		return first;
+	}
+
+	private void set(int row, int field, Object value) {
+		if (ints[field] != null && nulls[field] == null) {
+			ints[field][row] = value == null ? -1 : encode(field, (String)value);
+			return;
+		}
+		if (value == null) {
+			nulls[field][row >>> 6] |= 1L << row;
+		} else {
+			nulls[field][row >>> 6] &= ~(1L << row);
+			if (doubles[field] != null) doubles[field][row] = (Double)value;
+			else ints[field][row] = (Integer)value;
+		}
+	}
+
+	private int encode(int field, String s) {
+		Map<String,Integer> map = codes.get(field);
+		Integer code = map.get(s);
+		if (code == null) {
+			List<String> dictionary = dictionaries.get(field);
+			code = dictionary.size();
+			dictionary.add(s);
+			map.put(s, code);
+		}
+		return code;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) throw new IndexOutOfBoundsException("no row " + row + " in table of " + size);
+	}
+
+	/**
+	 * Return a planet that reads its fields from a row of this table.
+	 * @param row row number, must be in range [0,size())
+	 * @return planet for the row
+	 */
+	public Planet get(int row) {
+		checkRow(row);
+		return new Planet(this, row);
+	}
+
+	/**
+	 * Return whether a field is missing in a row.
+	 * @param row row number, must be in range [0,size())
+	 * @param field field index, must be in range [0,Planet.numFields())
+	 * @return whether the field has no value
+	 */
+	public boolean isNull(int row, int field) {
+		checkRow(row);
+		if (nulls[field] == null) return ints[field][row] == -1;
+		return (nulls[field][row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * Return the value of a double field in a row, without boxing.
+	 * @param row row number, must be in range [0,size())
+	 * @param field index of a double field
+	 * @return value of the field, or NaN if it is missing
+	 * @throws IllegalArgumentException if the field is not a double field
+	 */
+	public double getDouble(int row, int field) {
+		if (doubles[field] == null) throw new IllegalArgumentException("Field " + field + " is not a double field.");
+		if (isNull(row, field)) return Double.NaN;
+		return doubles[field][row];
+	}
+
+	/**
+	 * Return the value of an integer field in a row, without boxing.
+	 * @param row row number, must be in range [0,size())
+	 * @param field index of an integer field
+	 * @param ifMissing value to return if the field is missing
+	 * @return value of the field, or ifMissing if it is missing
+	 * @throws IllegalArgumentException if the field is not an integer field
+	 */
+	public int getInt(int row, int field, int ifMissing) {
+		if (Planet.getFieldType(field) != Integer.class) throw new IllegalArgumentException("Field " + field + " is not an integer field.");
+		if (isNull(row, field)) return ifMissing;
+		return ints[field][row];
+	}
+
+	/**
+	 * Return the value of a string field in a row.
+	 * @param row row number, must be in range [0,size())
+	 * @param field index of a string field
+	 * @return value of the field, or null if it is missing
+	 * @throws IllegalArgumentException if the field is not a string field
+	 */
+	public String getString(int row, int field) {
+		if (nulls[field] != null) throw new IllegalArgumentException("Field " + field + " is not a string field.");
+		checkRow(row);
+		int code = ints[field][row];
+		return code == -1 ? null : dictionaries.get(field).get(code);
+	}
+
+	/**
+	 * Return the value of any field in a row, boxed as
+	 * {@link Planet#getField(int)} would return it.
+	 * @param row row number, must be in range [0,size())
+	 * @param field field index, must be in range [0,Planet.numFields())
+	 * @return value of the field, or null if it is missing
+	 */
+	public Object getField(int row, int field) {
+		if (nulls[field] == null) return getString(row, field);
+		if (isNull(row, field)) return null;
+		if (doubles[field] != null) return doubles[field][row];
+		return ints[field][row];
+	}
+
+	/**
+	 * Return whether two rows have the same value for a field,
+	 * in the sense of {@link java.util.Objects#equals(Object, Object)}
+	 * on the boxed values.
+	 * @param row1 row number, must be in range [0,size())
+	 * @param row2 row number, must be in range [0,size())
+	 * @param field field index, must be in range [0,Planet.numFields())
+	 * @return whether the values are the same
+	 */
+	boolean sameField(int row1, int row2, int field) {
+		boolean n1 = isNull(row1, field), n2 = isNull(row2, field);
+		if (n1 || n2) return n1 == n2;
+		if (doubles[field] != null) {
+			return Double.doubleToLongBits(doubles[field][row1]) == Double.doubleToLongBits(doubles[field][row2]);
+		}
+		return ints[field][row1] == ints[field][row2];
+	}
+
+	/**
+	 * Return the number of distinct values of a string field.
+	 * @param field index of a string field
+	 * @return number of different strings stored for the field
+	 * @throws IllegalArgumentException if the field is not a string field
+	 */
+	public int dictionarySize(int field) {
+		if (nulls[field] != null) throw new IllegalArgumentException("Field " + field + " is not a string field.");
+		return dictionaries.get(field).size();
+	}
+
+	/**
+	 * Write the table in a compact binary form, which
+	 * {@link #read(ByteBuffer)} reads back.
+	 * The number of fields and of rows are followed by one column
+	 * for each field, prefixed by its length in bytes (a long) so
+	 * that a reader can skip it.  A numeric column is the values of
+	 * all the rows followed by the bitmap of missing values; a string
+	 * column is the dictionary (its size and then each string as a length
+	 * and UTF-8 bytes) followed by the code of each row.
+	 * @param out where to write the table, must not be null
+	 * @throws IOException if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(doubles.length);
+		out.writeInt(size);
+		int words = bitmapLength(size);
+		for (int i=0; i < doubles.length; ++i) {
+			if (nulls[i] == null) {
+				List<String> dictionary = dictionaries.get(i);
+				byte[][] encoded = new byte[dictionary.size()][];
+				long length = 4 + 4L * size;
+				for (int k=0; k < encoded.length; ++k) {
+					encoded[k] = dictionary.get(k).getBytes(StandardCharsets.UTF_8);
+					length += 4 + encoded[k].length;
+				}
+				out.writeLong(length);
+				out.writeInt(encoded.length);
+				for (byte[] b : encoded) {
+					out.writeInt(b.length);
+					out.write(b);
+				}
+				for (int r=0; r < size; ++r) out.writeInt(ints[i][r]);
+			} else {
+				out.writeLong((doubles[i] != null ? 8L : 4L) * size + 8L * words);
+				if (doubles[i] != null) {
+					for (int r=0; r < size; ++r) out.writeDouble(doubles[i][r]);
+				} else {
+					for (int r=0; r < size; ++r) out.writeInt(ints[i][r]);
+				}
+				for (int w=0; w < words; ++w) out.writeLong(nulls[i][w]);
+			}
+		}
+	}
+
+	/**
+	 * Read a table written by {@link #write(DataOutput)}, starting at the
+	 * position of the buffer, which is left just after the table.
+	 * Numeric columns are copied from the buffer in bulk, so reading from a
+	 * file mapped into memory takes little more time than copying its bytes.
+	 * The lengths in the buffer and the codes of string columns are checked,
+	 * so that a corrupt table is rejected rather than failing when read later.
+	 * @param in buffer to read from, must not be null
+	 * @return new table with the rows that were written
+	 * @throws IOException if the buffer does not hold a table of planets
+	 */
+	public static PlanetTable read(ByteBuffer in) throws IOException {
+		try {
+			int n = in.getInt();
+			if (n != Planet.numFields()) throw new IOException("table has " + n + " fields, not " + Planet.numFields());
+			int rows = in.getInt();
+			// every row takes at least four bytes in each column
+			if (rows < 0 || rows > in.remaining() / 4) throw new IOException("corrupt snapshot");
+			PlanetTable table = new PlanetTable();
+			table.ensureCapacity(rows);
+			int words = bitmapLength(rows);
+			for (int i=0; i < n; ++i) {
+				long length = in.getLong();
+				int start = in.position();
+				if (table.nulls[i] == null) {
+					int entries = in.getInt();
+					if (entries < 0 || entries > in.remaining() / 4) throw new IOException("corrupt snapshot");
+					for (int k=0; k < entries; ++k) {
+						int len = in.getInt();
+						if (len < 0 || len > in.remaining()) throw new IOException("corrupt snapshot");
+						byte[] b = new byte[len];
+						in.get(b);
+						// a repeated string would shift the codes after it
+						if (table.encode(i, new String(b, StandardCharsets.UTF_8)) != k) throw new IOException("corrupt snapshot");
+					}
+					in.asIntBuffer().get(table.ints[i], 0, rows);
+					in.position(in.position() + 4 * rows);
+					for (int r=0; r < rows; ++r) {
+						int code = table.ints[i][r];
+						if (code < -1 || code >= entries) throw new IOException("corrupt snapshot");
+					}
+				} else {
+					if (table.doubles[i] != null) {
+						in.asDoubleBuffer().get(table.doubles[i], 0, rows);
+						in.position(in.position() + 8 * rows);
+					} else {
+						in.asIntBuffer().get(table.ints[i], 0, rows);
+						in.position(in.position() + 4 * rows);
+					}
+					in.asLongBuffer().get(table.nulls[i], 0, words);
+					in.position(in.position() + 8 * words);
+				}
+				if (in.position() - start != length) throw new IOException("column " + i + " has the wrong length");
+			}
+			table.size = rows;
+			return table;
+		} catch (BufferUnderflowException | IllegalArgumentException ex) {
+			throw new IOException("table is truncated", ex);
+		}
+	}
+}
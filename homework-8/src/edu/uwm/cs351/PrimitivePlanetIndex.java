@@ -0,0 +1,775 @@
+package edu.uwm.cs351;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+import edu.uwm.cs351.PlanetIndex.Traversal;
+import edu.uwm.cs351.PlanetIndex.Validation;
+
+/**
+ * The tree shared by the indices of planets with primitive keys,
+ * {@link DoublePlanetIndex} and {@link IntPlanetIndex}.
+ * The index is sorted using a balanced (AVL) binary search tree,
+ * in which each node also records the number of nodes in its subtree,
+ * as in a balanced {@link PlanetIndex}.
+ * Each subclass keeps the key of a planet in its own kind of node,
+ * and says how to compare the keys of two nodes, so that keys
+ * are never boxed.  The bounds of a range are given as nodes
+ * with a key but no planet, or as null for no bound.
+ */
+abstract class PrimitivePlanetIndex {
+
+	static class Node {
+		Planet data;
+		Node left, right;
+		int height = 1;
+		int count = 1; // number of nodes in this subtree
+
+		Node(Planet p) { data = p; }
+	}
+
+	private Node root;
+	private int size;
+	private Node[] path = new Node[16]; // scratch space for add and remove
+	private Validation validation = PlanetIndex.DEFAULT_VALIDATION;
+	private int samplePeriod = PlanetIndex.DEFAULT_SAMPLE_PERIOD;
+	private int operations; // since the last full check, in SAMPLED mode
+
+	/**
+	 * Create a node for a planet, holding its key.
+	 * @param p planet, not null
+	 * @return new node, or null if the key of the planet is missing
+	 */
+	abstract Node newNode(Planet p);
+
+	/**
+	 * Compare the keys of two nodes.
+	 * @param n1 first node, not null
+	 * @param n2 second node, not null
+	 * @return negative, zero or positive as for {@link Comparable#compareTo(Object)}
+	 */
+	abstract int compareKeys(Node n1, Node n2);
+
+	/**
+	 * Copy the key of one node to another.
+	 * @param from node with the key, not null
+	 * @param to node to get the key, not null
+	 */
+	abstract void copyKey(Node from, Node to);
+
+	/**
+	 * Check that a node holds the key of its planet, and that
+	 * the key is not missing.
+	 * @param r node to check, with a planet
+	 * @return false if a problem was found (and reported)
+	 */
+	abstract boolean okKey(Node r);
+
+	private static boolean doReport = true;
+
+	boolean report(String error) {
+		if (doReport) System.out.println("Invariant error: " + error);
+		return false;
+	}
+
+	/**
+	 * Count the number of nodes in the subtree rooted here and
+	 * return the total number, or -1 if we find ourselves deeper
+	 * than the number of nodes supposedly in the tree.
+	 * @param r root of subtree
+	 * @param d depth of this subtree (0 = root)
+	 * @return number of nodes in the subtree, or -1
+	 */
+	private int countNodes(Node r, int d) {
+		if (r == null) return 0;
+		if (d >= size) return -1;
+		int n1 = countNodes(r.left,d+1);
+		int n2 = countNodes(r.right,d+1);
+		if (n1 == -1 || n2 == -1) return -1;
+		return 1 + n1 + n2;
+	}
+
+	/**
+	 * Check a subtree to see if items are in the correct order.
+	 * @param r subtree
+	 * @param lo node that every node in the subtree must come after, or null if no bound
+	 * @param hi node that every node in the subtree must come before, or null if no bound
+	 * @return true if all nodes in the subtree are inside the range, and subtrees also good
+	 */
+	private boolean okTree(Node r, Node lo, Node hi) {
+		if (r == null) return true;
+		if (r.data == null) return report("found null planet in tree");
+		if (!okKey(r)) return false;
+		if (lo != null && compare(lo, r) >= 0) return report("Found " + r.data + " <= " + lo.data);
+		if (hi != null && compare(r, hi) >= 0) return report("Found " + r.data + " >= " + hi.data);
+		return okTree(r.left, lo, r) && okTree(r.right, r, hi);
+	}
+
+	/**
+	 * Check that the heights recorded in a subtree are correct and balanced.
+	 * @param r subtree
+	 * @return height of the subtree, or -1 if a problem was found
+	 */
+	private int checkHeights(Node r) {
+		if (r == null) return 0;
+		int hl = checkHeights(r.left);
+		if (hl == -1) return -1;
+		int hr = checkHeights(r.right);
+		if (hr == -1) return -1;
+		if (hl - hr > 1 || hr - hl > 1) {
+			report("Found " + r.data + " with unbalanced subtrees " + hl + " and " + hr);
+			return -1;
+		}
+		int h = 1 + Math.max(hl, hr);
+		if (r.height != h) {
+			report("Found " + r.data + " with height " + r.height + " instead of " + h);
+			return -1;
+		}
+		return h;
+	}
+
+	/**
+	 * Check that the counts recorded in a subtree are correct.
+	 * @param r subtree
+	 * @return number of nodes in the subtree, or -1 if a problem was found
+	 */
+	private int checkCounts(Node r) {
+		if (r == null) return 0;
+		int cl = checkCounts(r.left);
+		if (cl == -1) return -1;
+		int cr = checkCounts(r.right);
+		if (cr == -1) return -1;
+		if (r.count != 1 + cl + cr) {
+			report("Found " + r.data + " with count " + r.count + " instead of " + (1 + cl + cr));
+			return -1;
+		}
+		return r.count;
+	}
+
+	private boolean wellFormed() {
+		if (!okTree(root, null, null)) return report("tree is not structured correctly");
+		if (countNodes(root, 0) != size) return report("the number of nodes does not equal the size");
+		if (checkHeights(root) == -1) return report("tree is not balanced");
+		if (checkCounts(root) == -1) return report("counts are wrong");
+		return true;
+	}
+
+	/**
+	 * Check the invariant as much as the validation mode asks for.
+	 * This is what operations assert, rather than {@link #wellFormed()}.
+	 * @return false if a problem was found
+	 */
+	private boolean validate() {
+		switch (validation) {
+		case OFF: return true;
+		case INCREMENTAL: return count(root) == size || report("the count of the root is not the size");
+		case SAMPLED:
+			if (++operations < samplePeriod) return true;
+			operations = 0;
+			break;
+		case FULL: break;
+		}
+		return wellFormed();
+	}
+
+	/**
+	 * Check the nodes on the path of the last add or remove,
+	 * if the validation mode is INCREMENTAL.
+	 * @param depth number of nodes on the path
+	 * @return false if a problem was found
+	 */
+	private boolean validatePath(int depth) {
+		if (validation != Validation.INCREMENTAL) return true;
+		for (int i=0; i < depth; ++i) {
+			Node r = path[i];
+			if (!okNode(r)) return false;
+			if (r.left != null && !okNode(r.left)) return false;
+			if (r.right != null && !okNode(r.right)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check a node against its children only: its key, the order
+	 * of its children, and its count and height.
+	 * @param r node to check, not null
+	 * @return false if a problem was found
+	 */
+	private boolean okNode(Node r) {
+		if (r.data == null) return report("found null planet in tree");
+		if (!okKey(r)) return false;
+		if (r.left != null && compare(r.left, r) >= 0) return report("Found " + r.left.data + " left of " + r.data);
+		if (r.right != null && compare(r, r.right) >= 0) return report("Found " + r.right.data + " right of " + r.data);
+		if (r.count != 1 + count(r.left) + count(r.right)) return report("Found " + r.data + " with count " + r.count);
+		int hl = height(r.left), hr = height(r.right);
+		if (hl - hr > 1 || hr - hl > 1) return report("Found " + r.data + " with unbalanced subtrees " + hl + " and " + hr);
+		if (r.height != 1 + Math.max(hl, hr)) return report("Found " + r.data + " with height " + r.height);
+		return true;
+	}
+
+	/**
+	 * Set how much of the invariant is checked by each operation
+	 * when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 */
+	public void setValidation(Validation mode) {
+		setValidation(mode, PlanetIndex.DEFAULT_SAMPLE_PERIOD);
+	}
+
+	/**
+	 * Set how much of the invariant is checked by each operation
+	 * when assertions are enabled.
+	 * @param mode validation mode, must not be null
+	 * @param period number of operations per full check, in SAMPLED mode
+	 */
+	public void setValidation(Validation mode, int period) {
+		if (mode == null) throw new NullPointerException("validation mode must not be null");
+		if (period < 1) throw new IllegalArgumentException("period must be positive: " + period);
+		validation = mode;
+		samplePeriod = period;
+		operations = 0;
+	}
+
+	/**
+	 * Return how much of the invariant is checked by each operation.
+	 * @return validation mode
+	 */
+	public Validation getValidation() {
+		return validation;
+	}
+
+	/**
+	 * Return number of planets in index
+	 * @return size of index
+	 */
+	public int size() {
+		assert validate() : "tree badly formed at start of size()";
+		return size;
+	}
+
+	/**
+	 * Add a planet to the index, returning true unless it was already there
+	 * or unless the planet's key is missing.
+	 * @param p planet to add, must not be null
+	 * @return whether planet needed to be added.
+	 */
+	public boolean add(Planet p) {
+		assert validate() : "Tree badly formed at the start of add";
+		if (p == null) throw new NullPointerException("cannot add null");
+		Node n = newNode(p);
+		if (n == null) return false;
+		int oldSize = size;
+		doAdd(n);
+		assert validate() : "Tree badly formed at the end of add";
+		return oldSize < size;
+	}
+
+	private void doAdd(Node n) {
+		int depth = 0;
+		Node r = root;
+		int c = 0;
+		while (r != null) {
+			c = compare(n, r);
+			if (c == 0) {
+				Arrays.fill(path, 0, depth, null);
+				return;
+			}
+			depth = pushPath(depth, r);
+			r = c < 0 ? r.left : r.right;
+		}
+
+		++size;
+		if (depth == 0) {
+			root = n;
+			return;
+		}
+		if (c < 0) path[depth-1].left = n;
+		else path[depth-1].right = n;
+		for (int i=0; i < depth; ++i) ++path[i].count;
+
+		retrace(depth);
+		assert validatePath(depth) : "Tree badly formed along the path of add";
+		Arrays.fill(path, 0, depth, null);
+	}
+
+	/**
+	 * Remove a planet and return true, if it is there, otherwise return
+	 * false, for example if the planet's key is missing.
+	 * @param p planet to remove, must not be null
+	 * @return whether planet was removed
+	 */
+	public boolean remove(Planet p) {
+		assert validate() : "Tree badly formed at the start of remove";
+		if (p == null) throw new NullPointerException("cannot remove null");
+		Node n = newNode(p);
+		if (n == null) return false;
+		boolean found = doRemove(n);
+		assert validate() : "Tree badly formed at the end of remove";
+		return found;
+	}
+
+	private boolean doRemove(Node n) {
+		int depth = 0;
+		Node r = root;
+		while (r != null) {
+			int c = compare(n, r);
+			if (c == 0) break;
+			depth = pushPath(depth, r);
+			r = c < 0 ? r.left : r.right;
+		}
+		if (r == null) {
+			Arrays.fill(path, 0, depth, null);
+			return false;
+		}
+		if (r.left != null && r.right != null) {
+			// move the next planet here and remove its node instead
+			Node target = r;
+			depth = pushPath(depth, r);
+			r = r.right;
+			while (r.left != null) {
+				depth = pushPath(depth, r);
+				r = r.left;
+			}
+			target.data = r.data;
+			copyKey(r, target);
+		}
+		Node child = r.left != null ? r.left : r.right;
+		if (depth == 0) root = child;
+		else if (path[depth-1].left == r) path[depth-1].left = child;
+		else path[depth-1].right = child;
+		--size;
+		for (int i=0; i < depth; ++i) --path[i].count;
+		retrace(depth);
+		assert validatePath(depth) : "Tree badly formed along the path of remove";
+		Arrays.fill(path, 0, depth, null);
+		return true;
+	}
+
+	private int pushPath(int depth, Node r) {
+		if (depth == path.length) path = Arrays.copyOf(path, depth*2);
+		path[depth] = r;
+		return depth + 1;
+	}
+
+	/**
+	 * Rebalance the nodes on the path, from the bottom up, after
+	 * a node was added or removed below them.  The counts on the
+	 * path must already be correct, since rotations only move them.
+	 * @param depth number of nodes on the path
+	 */
+	private void retrace(int depth) {
+		while (depth > 0) {
+			Node r = path[--depth];
+			int oldHeight = r.height;
+			Node sub = rebalance(r);
+			if (depth == 0) root = sub;
+			else if (path[depth-1].left == r) path[depth-1].left = sub;
+			else path[depth-1].right = sub;
+			if (sub == r && r.height == oldHeight) break;
+		}
+	}
+
+	/**
+	 * Replace a planet in the index with another, whose key may be different.
+	 * If the old planet is not in the index, or the replacement cannot
+	 * be added because its key is missing or it is already in the index,
+	 * nothing is changed.
+	 * @param old planet to remove, must not be null
+	 * @param replacement planet to add in its place, must not be null
+	 * @return whether the old planet was found and replaced
+	 */
+	public boolean update(Planet old, Planet replacement) {
+		if (replacement == null) throw new NullPointerException("cannot add null");
+		if (!remove(old)) return false;
+		if (!add(replacement)) {
+			add(old);
+			return false;
+		}
+		return true;
+	}
+
+	private static int height(Node r) {
+		return r == null ? 0 : r.height;
+	}
+
+	private static int count(Node r) {
+		return r == null ? 0 : r.count;
+	}
+
+	/**
+	 * Recompute the height and count of a node from its subtrees.
+	 * @param r node, must not be null
+	 */
+	private static void fix(Node r) {
+		r.height = 1 + Math.max(height(r.left), height(r.right));
+		r.count = 1 + count(r.left) + count(r.right);
+	}
+
+	private static Node rotateRight(Node r) {
+		Node l = r.left;
+		r.left = l.right;
+		l.right = r;
+		fix(r);
+		fix(l);
+		return l;
+	}
+
+	private static Node rotateLeft(Node r) {
+		Node n = r.right;
+		r.right = n.left;
+		n.left = r;
+		fix(r);
+		fix(n);
+		return n;
+	}
+
+	private static Node rebalance(Node r) {
+		fix(r);
+		int diff = height(r.left) - height(r.right);
+		if (diff > 1) {
+			if (height(r.left.left) < height(r.left.right)) r.left = rotateLeft(r.left);
+			return rotateRight(r);
+		}
+		if (diff < -1) {
+			if (height(r.right.right) < height(r.right.left)) r.right = rotateRight(r.right);
+			return rotateLeft(r);
+		}
+		return r;
+	}
+
+	/**
+	 * Add all planets from this collection.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
+	 * @param coll collection to add planets, must not be null.
+	 */
+	public void addAll(Collection<Planet> coll) {
+		if (size == 0) {
+			build(coll);
+			return;
+		}
+		for (Planet p : coll) {
+			add(p);
+		}
+	}
+
+	/**
+	 * Add all planets from the given index to this index.
+	 * If this index is empty, the tree is built all at once,
+	 * perfectly balanced.
+	 * @param index existing index of planets, must not be null
+	 */
+	public void addAll(PlanetIndex<?> index) {
+		if (size == 0) {
+			List<Planet> planets = new ArrayList<>(index.size());
+			index.doAll((p) -> planets.add(p), null, null, Traversal.IN_ORDER);
+			build(planets);
+			return;
+		}
+		index.doAll((p) -> add(p), null, null, Traversal.PRE_ORDER);
+	}
+
+	/**
+	 * Compare the planets in two nodes in the order of the tree.
+	 * @param n1 first node, not null
+	 * @param n2 second node, not null
+	 * @return negative, zero or positive as for {@link Comparable#compareTo(Object)}
+	 */
+	private int compare(Node n1, Node n2) {
+		int c = compareKeys(n1, n2);
+		if (c == 0) c = n1.data.compareTo(n2.data);
+		return c;
+	}
+
+	/**
+	 * Build the tree of an empty index from a collection of planets.
+	 * The planets are sorted once (which is linear time if they are already
+	 * in order) and then linked into a perfectly balanced tree in linear time.
+	 * Planets with missing keys and duplicates are skipped, as by add.
+	 * @param coll planets to put in the tree, must not be null
+	 */
+	private void build(Collection<Planet> coll) {
+		assert validate() : "Tree badly formed at the start of build";
+		Node[] nodes = new Node[coll.size()];
+		int n = 0;
+		for (Planet p : coll) {
+			if (p == null) throw new NullPointerException("cannot add null");
+			Node r = newNode(p);
+			if (r != null) nodes[n++] = r;
+		}
+		Arrays.sort(nodes, 0, n, this::compare);
+		int unique = 0;
+		for (int i=0; i < n; ++i) {
+			if (unique == 0 || compare(nodes[unique-1], nodes[i]) != 0) nodes[unique++] = nodes[i];
+		}
+		root = link(nodes, 0, unique);
+		size = unique;
+		assert validate() : "Tree badly formed at the end of build";
+	}
+
+	/**
+	 * Link sorted nodes into a perfectly balanced tree.
+	 * @param nodes array of nodes in order
+	 * @param lo index of first node to link
+	 * @param hi index after last node to link
+	 * @return root of tree of the nodes
+	 */
+	private static Node link(Node[] nodes, int lo, int hi) {
+		if (lo >= hi) return null;
+		int mid = (lo + hi) >>> 1;
+		Node r = nodes[mid];
+		r.left = link(nodes, lo, mid);
+		r.right = link(nodes, mid+1, hi);
+		fix(r);
+		return r;
+	}
+
+	/**
+	 * Return the planet at the given position in the order of the index,
+	 * as would be visited by an {@link Traversal#IN_ORDER} traversal.
+	 * This takes time proportional to the height of the tree, O(log n).
+	 * @param i position of planet, must be in range [0,size())
+	 * @return planet at that position
+	 * @throws IndexOutOfBoundsException if the position is not in range
+	 */
+	public Planet select(int i) {
+		assert validate() : "invariant failed in select";
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("no planet " + i + " in index of " + size);
+		Node r = root;
+		for (;;) {
+			int left = count(r.left);
+			if (i == left) return r.data;
+			if (i < left) r = r.left;
+			else {
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of planets with keys less than the key of the bound.
+	 * @param lo node with the key to compare with, or null (for no planets)
+	 * @return number of planets with smaller keys
+	 */
+	int rank(Node lo) {
+		assert validate() : "invariant failed in rank";
+		if (lo == null) return 0;
+		int n = 0;
+		Node r = root;
+		while (r != null) {
+			if (compareKeys(lo, r) > 0) {
+				n += count(r.left) + 1;
+				r = r.right;
+			}
+			else r = r.left;
+		}
+		return n;
+	}
+
+	/**
+	 * Return the number of planets with keys at most the key of the bound.
+	 * @param hi node with the key to compare with, or null (for all planets)
+	 * @return number of planets with keys that are not larger
+	 */
+	private int countAtMost(Node hi) {
+		if (hi == null) return size;
+		int n = 0;
+		Node r = root;
+		while (r != null) {
+			if (compareKeys(hi, r) >= 0) {
+				n += count(r.left) + 1;
+				r = r.right;
+			}
+			else r = r.left;
+		}
+		return n;
+	}
+
+	/**
+	 * Return the number of planets in the given range, without visiting them.
+	 * @param lo node with the inclusive lower bound, or null for no bound
+	 * @param hi node with the inclusive upper bound, or null for no bound
+	 * @return number of planets in range
+	 */
+	int countInRange(Node lo, Node hi) {
+		assert validate() : "invariant failed in countInRange";
+		return Math.max(0, countAtMost(hi) - rank(lo));
+	}
+
+	/**
+	 * Find all the planets in the given range in the index.
+	 * @param f function to call on each planet in range, must not be null
+	 * @param lo node with the inclusive lower bound, or null for no bound
+	 * @param hi node with the inclusive upper bound, or null for no bound
+	 * @param t traversal order, must not be null
+	 */
+	void doAll(Consumer<Planet> f, Node lo, Node hi, Traversal t) {
+		assert validate() : "invariant failed in doAll";
+		if (t == null || f == null) throw new NullPointerException("doAll requires non-null arguments");
+		switch (t) {
+		case PRE_ORDER: doPreOrder(root, f, lo, hi); break;
+		case IN_ORDER: doInOrder(root, f, lo, hi); break;
+		case POST_ORDER: doPostOrder(root, f, lo, hi); break;
+		case REVERSE_ORDER: doReverseOrder(root, f, lo, hi); break;
+		}
+	}
+
+	/**
+	 * Find some of the planets in the given range in the index, in order.
+	 * The planets skipped are not visited at all, and the traversal
+	 * stops as soon as the limit is reached.
+	 * @param f function to call on each planet found, must not be null
+	 * @param lo node with the inclusive lower bound, or null for no bound
+	 * @param hi node with the inclusive upper bound, or null for no bound
+	 * @param descending whether to go from the largest keys down
+	 * @param offset number of planets in range to skip, must not be negative
+	 * @param limit maximum number of planets to handle, must not be negative
+	 */
+	void doAll(Consumer<Planet> f, Node lo, Node hi, boolean descending, int offset, int limit) {
+		assert validate() : "invariant failed in doAll";
+		if (f == null) throw new NullPointerException("doAll requires non-null arguments");
+		if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+		// the planets in range are at positions [first,end) of the index
+		int first = rank(lo), end = countAtMost(hi);
+		int n = (int)Math.min(limit, (long)end - first - offset);
+		if (n <= 0) return;
+		if (descending) doDescending(end - 1 - offset, n, f);
+		else doAscending(first + offset, n, f);
+	}
+
+	/**
+	 * Handle planets in order, starting from the given position.
+	 * The stack is made to hold the nodes where we went left on
+	 * the way down to the first position, which are the ones
+	 * to come back to, just as for an in-order traversal.
+	 * @param i position of first planet
+	 * @param n number of planets to handle, there must be that many
+	 * @param f function to call on each
+	 */
+	private void doAscending(int i, int n, Consumer<Planet> f) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node r = root;
+		for (;;) {
+			int left = count(r.left);
+			if (i <= left) stack.push(r);
+			if (i == left) break;
+			if (i < left) r = r.left;
+			else {
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+		while (n-- > 0) {
+			r = stack.pop();
+			f.accept(r.data);
+			for (r = r.right; r != null; r = r.left) stack.push(r);
+		}
+	}
+
+	/**
+	 * Handle planets in reverse order, starting from the given position.
+	 * @param i position of first planet
+	 * @param n number of planets to handle, there must be that many
+	 * @param f function to call on each
+	 */
+	private void doDescending(int i, int n, Consumer<Planet> f) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node r = root;
+		for (;;) {
+			int left = count(r.left);
+			if (i >= left) stack.push(r);
+			if (i == left) break;
+			if (i < left) r = r.left;
+			else {
+				i -= left + 1;
+				r = r.right;
+			}
+		}
+		while (n-- > 0) {
+			r = stack.pop();
+			f.accept(r.data);
+			for (r = r.left; r != null; r = r.right) stack.push(r);
+		}
+	}
+
+	// A subtree is only entered if it may contain keys in range.
+
+	private boolean inLeft(Node lo, Node r) {
+		return lo == null || compareKeys(lo, r) <= 0;
+	}
+
+	private boolean inRight(Node hi, Node r) {
+		return hi == null || compareKeys(hi, r) >= 0;
+	}
+
+	private void doPreOrder(Node r, Consumer<Planet> f, Node lo, Node hi) {
+		if (r == null) return;
+		Deque<Node> stack = new ArrayDeque<>();
+		stack.push(r);
+		while (!stack.isEmpty()) {
+			r = stack.pop();
+			boolean inLeft = inLeft(lo, r);
+			boolean inRight = inRight(hi, r);
+			if (inLeft && inRight) f.accept(r.data);
+			if (inRight && r.right != null) stack.push(r.right);
+			if (inLeft && r.left != null) stack.push(r.left);
+		}
+	}
+
+	private void doInOrder(Node r, Consumer<Planet> f, Node lo, Node hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		for (;;) {
+			while (r != null) {
+				stack.push(r);
+				r = inLeft(lo, r) ? r.left : null;
+			}
+			if (stack.isEmpty()) return;
+			r = stack.pop();
+			boolean inRight = inRight(hi, r);
+			if (inRight && inLeft(lo, r)) f.accept(r.data);
+			r = inRight ? r.right : null;
+		}
+	}
+
+	private void doReverseOrder(Node r, Consumer<Planet> f, Node lo, Node hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		for (;;) {
+			while (r != null) {
+				stack.push(r);
+				r = inRight(hi, r) ? r.right : null;
+			}
+			if (stack.isEmpty()) return;
+			r = stack.pop();
+			boolean inLeft = inLeft(lo, r);
+			if (inLeft && inRight(hi, r)) f.accept(r.data);
+			r = inLeft ? r.left : null;
+		}
+	}
+
+	private void doPostOrder(Node r, Consumer<Planet> f, Node lo, Node hi) {
+		Deque<Node> stack = new ArrayDeque<>();
+		Node last = null;
+		while (r != null || !stack.isEmpty()) {
+			if (r != null) {
+				stack.push(r);
+				r = inLeft(lo, r) ? r.left : null;
+				continue;
+			}
+			Node top = stack.peek();
+			boolean inRight = inRight(hi, top);
+			if (inRight && top.right != null && top.right != last) {
+				r = top.right;
+			} else {
+				stack.pop();
+				if (inRight && inLeft(lo, top)) f.accept(top.data);
+				last = top;
+			}
+		}
+	}
+}